@@ -0,0 +1,32 @@
+package com.xixi.mall.api.auth.bo;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * 批量校验token的结果
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class TokenCheckResultBo {
+
+    /**
+     * 前端传入的accessToken
+     */
+    private String accessToken;
+
+    /**
+     * 是否已过期，token格式有误、已被删除都视为已过期
+     */
+    private Boolean expired;
+
+    /**
+     * token保存的用户信息，已过期时为空
+     */
+    private UserInfoInTokenBo userInfoInToken;
+
+}
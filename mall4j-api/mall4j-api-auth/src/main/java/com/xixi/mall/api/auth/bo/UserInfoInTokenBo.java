@@ -2,11 +2,13 @@ package com.xixi.mall.api.auth.bo;
 
 
 import com.xixi.mall.api.auth.constant.SysTypeEnum;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
+@EqualsAndHashCode
 public class UserInfoInTokenBo {
 
     /**
@@ -3,6 +3,8 @@ package com.xixi.mall.api.auth.constant;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.Objects;
+
 /**
  * 系统类型
  */
@@ -11,22 +13,44 @@ import lombok.Getter;
 public enum SysTypeEnum {
 
     /**
-     * 普通用户系统
+     * 普通用户系统，token过期时间 1小时
      */
-    ORDINARY(0),
+    ORDINARY(0, 3600),
 
     /**
-     * 商家端
+     * 商家端，token过期时间 2小时
      */
-    MULTISHOP(1),
+    MULTISHOP(1, 7200),
 
     /**
-     * 平台端
+     * 平台端，token过期时间 2小时
      */
-    PLATFORM(2),
+    PLATFORM(2, 7200),
 
     ;
 
     private final Integer value;
 
+    /**
+     * token过期时间，以秒为单位
+     */
+    private final int expiresIn;
+
+    /**
+     * 获取系统类型对应的token过期时间
+     *
+     * @param sysType 系统类型
+     * @return token过期时间，以秒为单位，未知的系统类型与普通用户一致
+     */
+    public static int getExpiresIn(Integer sysType) {
+
+        for (SysTypeEnum sysTypeEnum : values()) {
+            if (Objects.equals(sysTypeEnum.value, sysType)) {
+                return sysTypeEnum.expiresIn;
+            }
+        }
+
+        return ORDINARY.expiresIn;
+    }
+
 }
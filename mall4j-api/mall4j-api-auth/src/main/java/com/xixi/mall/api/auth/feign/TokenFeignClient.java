@@ -1,13 +1,19 @@
 package com.xixi.mall.api.auth.feign;
 
+import com.xixi.mall.api.auth.bo.TokenCheckResultBo;
 import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
 import com.xixi.mall.common.core.feign.FeignInsideAuthConfig;
 import com.xixi.mall.common.core.webbase.vo.ServerResponse;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(value = "mall4j-auth", contextId = "token")
 @RequestMapping(FeignInsideAuthConfig.FEIGN_URL + "/token")
 public interface TokenFeignClient {
@@ -21,4 +27,24 @@ public interface TokenFeignClient {
     @GetMapping("/checkToken")
     ServerResponse<UserInfoInTokenBo> checkToken(@RequestParam("accessToken") String accessToken);
 
+    /**
+     * 批量校验token，返回结果与传入的token顺序一致
+     *
+     * @param accessTokens accessToken列表
+     * @return 每个token的校验结果
+     */
+    @PostMapping(FeignInsideAuthConfig.INSIDER_URL + "/checkTokens")
+    ServerResponse<List<TokenCheckResultBo>> checkTokens(@RequestBody List<String> accessTokens);
+
+    /**
+     * 删除某个系统下全部用户的token，指定租户时只删除该租户下的用户
+     *
+     * @param sysType  系统类型
+     * @param tenantId 租户id
+     * @return 删除的token数量
+     */
+    @DeleteMapping(FeignInsideAuthConfig.INSIDER_URL + "/revokeAll")
+    ServerResponse<Long> revokeAll(@RequestParam("sysType") Integer sysType,
+                                   @RequestParam(value = "tenantId", required = false) Long tenantId);
+
 }
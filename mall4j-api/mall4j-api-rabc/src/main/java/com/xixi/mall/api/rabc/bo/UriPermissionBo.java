@@ -27,4 +27,9 @@ public class UriPermissionBo {
      */
     private String permission;
 
+    /**
+     * 权限在该系统下的整数id，用于与用户权限位图比对
+     */
+    private Integer permissionId;
+
 }
@@ -0,0 +1,29 @@
+package com.xixi.mall.api.rabc.bo;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 某个系统下全部 uri -> 权限 规则的快照
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class UriPermissionSnapshotBo {
+
+    /**
+     * 版本，由规则内容计算得出，规则不变时版本不变
+     */
+    private String version;
+
+    /**
+     * uri权限规则，版本与调用方持有的版本一致时为空
+     */
+    private List<UriPermissionBo> uriPermissions;
+
+}
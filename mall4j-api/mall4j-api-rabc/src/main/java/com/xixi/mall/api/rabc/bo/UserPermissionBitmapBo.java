@@ -0,0 +1,27 @@
+package com.xixi.mall.api.rabc.bo;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * 用户拥有的权限位图
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class UserPermissionBitmapBo {
+
+    /**
+     * 生成位图时的权限版本，与当前版本不一致时缓存的位图已过期
+     */
+    private String epoch;
+
+    /**
+     * BitSet.toByteArray() 的结果，第n位表示是否拥有id为n的权限
+     */
+    private byte[] bitmap;
+
+}
@@ -1,16 +1,20 @@
 package com.xixi.mall.api.rabc.feign;
 
+import com.xixi.mall.api.rabc.bo.UriPermissionSnapshotBo;
+import com.xixi.mall.api.rabc.bo.UserPermissionBitmapBo;
 import com.xixi.mall.api.rabc.dto.ClearUserPermissionsCacheDto;
 import com.xixi.mall.common.core.feign.FeignInsideAuthConfig;
 import com.xixi.mall.common.core.webbase.vo.ServerResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RequestMapping(FeignInsideAuthConfig.FEIGN_URL + "/permission")
 @FeignClient(value = PermissionFeignClient.SERVICE_NAME, contextId = "permission")
 public interface PermissionFeignClient {
 
-    String SERVICE_NAME = "mall4cloud-rbac";
+    String SERVICE_NAME = "mall4j-rabc";
 
     /**
      * 校验是否有某个uri的权限
@@ -38,4 +42,41 @@ public interface PermissionFeignClient {
     @PostMapping(FeignInsideAuthConfig.INSIDER_URL + "/clearUserPermissionsCache")
     ServerResponse<Void> clearUserPermissionsCache(@RequestBody ClearUserPermissionsCacheDto clearUserPermissionsCacheDto);
 
+    /**
+     * 获取uri权限规则快照
+     *
+     * @param sysType 系统类型
+     * @param version 调用方当前持有的版本，版本未变化时不返回规则
+     * @return uri权限规则快照
+     */
+    @GetMapping(FeignInsideAuthConfig.INSIDER_URL + "/getUriPermissionSnapshot")
+    ServerResponse<UriPermissionSnapshotBo> getUriPermissionSnapshot(@RequestParam("sysType") Integer sysType,
+                                                                     @RequestParam(value = "version", required = false) String version);
+
+    /**
+     * 获取用户拥有的权限
+     *
+     * @param userId  用户ID
+     * @param sysType 系统类型
+     * @param isAdmin 是否管理员
+     * @return 权限列表
+     */
+    @GetMapping(FeignInsideAuthConfig.INSIDER_URL + "/listUserPermissions")
+    ServerResponse<List<String>> listUserPermissions(@RequestParam("userId") Long userId,
+                                                     @RequestParam("sysType") Integer sysType,
+                                                     @RequestParam("isAdmin") Integer isAdmin);
+
+    /**
+     * 获取用户拥有的权限位图，位下标为快照中的权限id
+     *
+     * @param userId  用户ID
+     * @param sysType 系统类型
+     * @param isAdmin 是否管理员
+     * @return 权限位图
+     */
+    @GetMapping(FeignInsideAuthConfig.INSIDER_URL + "/getUserPermissionBitmap")
+    ServerResponse<UserPermissionBitmapBo> getUserPermissionBitmap(@RequestParam("userId") Long userId,
+                                                                   @RequestParam("sysType") Integer sysType,
+                                                                   @RequestParam("isAdmin") Integer isAdmin);
+
 }
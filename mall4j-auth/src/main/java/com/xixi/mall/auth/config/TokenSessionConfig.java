@@ -0,0 +1,73 @@
+package com.xixi.mall.auth.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 用户会话配置
+ * 同一用户在同一系统下同时在线的token数超过上限时，最早登录的token会被挤下线
+ * 开启滑动过期后，活跃用户的token会在最长有效期内自动延长
+ */
+@Setter
+@Getter
+@ToString
+@RefreshScope
+@Configuration
+@ConfigurationProperties("auth.token.session")
+public class TokenSessionConfig {
+
+    /**
+     * 默认的最大会话数，小于等于0表示不限制
+     */
+    private int maxSessions = 0;
+
+    /**
+     * 系统类型 -> 最大会话数，未配置的系统类型使用 maxSessions
+     */
+    private Map<Integer, Integer> maxSessionsBySysType = new HashMap<>();
+
+    /**
+     * refreshToken轮换后的宽限期，以毫秒为单位
+     * 宽限期内再次使用旧的refreshToken（如多个页面同时刷新）返回同一对新token，超过宽限期视为refreshToken被盗用，删除该用户全部token
+     */
+    private long refreshGraceMillis = 10000;
+
+    /**
+     * 是否开启滑动过期，开启后token在有效期内被使用且剩余时间不足时会自动延长
+     * 签名token的过期时间写在token中，不会滑动
+     */
+    private boolean slidingEnabled = false;
+
+    /**
+     * 剩余有效期低于该值时才延长，以秒为单位
+     */
+    private long slidingThreshold = 600;
+
+    /**
+     * token从登录开始的最长有效期，滑动过期不会超过该时间，以秒为单位
+     */
+    private long maxLifetime = 43200;
+
+    /**
+     * 各节点汇总延长请求后批量写入redis的间隔，以毫秒为单位
+     */
+    private long slidingFlushInterval = 1000;
+
+    /**
+     * 获取系统类型对应的最大会话数
+     *
+     * @param sysType 系统类型
+     * @return 最大会话数，小于等于0表示不限制
+     */
+    public int getMaxSessions(Integer sysType) {
+        return maxSessionsBySysType.getOrDefault(sysType, maxSessions);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.xixi.mall.auth.constant;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * token相关的lua脚本，脚本中会访问KEYS之外的key，仅支持单机/主从/哨兵模式的redis
+ */
+@SuppressWarnings("rawtypes")
+public interface TokenRedisScript {
+
+    /**
+     * 保存会话索引的公共函数，需要拼接在其它脚本之前
+     */
+    String STORE_SESSION = "lua/store_session.lua";
+
+    /**
+     * 保存token并清理过期token，返回超过最大会话数被挤掉的 accessToken:refreshToken
+     */
+    RedisScript<List> STORE_ACCESS_TOKEN = of(List.class, STORE_SESSION, "lua/store_access_token.lua");
+
+    /**
+     * 使用refreshToken原子地换取新的token
+     */
+    RedisScript<List> ROTATE_REFRESH_TOKEN = of(List.class, STORE_SESSION, "lua/rotate_refresh_token.lua");
+
+    /**
+     * 批量延长token的过期时间，返回成功延长的token数量
+     */
+    RedisScript<Long> EXTEND_SESSIONS = of(Long.class, "lua/extend_sessions.lua");
+
+    /**
+     * 将多个classpath下的脚本按顺序拼接为一个脚本
+     *
+     * @param resultType 返回值类型
+     * @param paths      classpath下的脚本路径
+     * @param <T>        返回值类型
+     * @return 脚本
+     */
+    static <T> RedisScript<T> of(Class<T> resultType, String... paths) {
+
+        StringBuilder script = new StringBuilder();
+
+        for (String path : paths) {
+            script.append(ResourceUtil.readUtf8Str(path)).append('\n');
+        }
+
+        return RedisScript.of(script.toString(), resultType);
+    }
+
+}
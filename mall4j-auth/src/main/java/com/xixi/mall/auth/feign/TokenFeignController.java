@@ -1,5 +1,6 @@
 package com.xixi.mall.auth.feign;
 
+import com.xixi.mall.api.auth.bo.TokenCheckResultBo;
 import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
 import com.xixi.mall.api.auth.feign.TokenFeignClient;
 import com.xixi.mall.auth.service.sys.TokenStoreSysService;
@@ -9,6 +10,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.annotation.Resource;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -25,4 +27,18 @@ public class TokenFeignController implements TokenFeignClient {
         );
     }
 
+    @Override
+    public ServerResponse<List<TokenCheckResultBo>> checkTokens(List<String> accessTokens) {
+        return PackResponseEnhance.enhance(
+                () -> tokenStoreSysService.checkTokens(accessTokens)
+        );
+    }
+
+    @Override
+    public ServerResponse<Long> revokeAll(Integer sysType, Long tenantId) {
+        return PackResponseEnhance.enhance(
+                () -> tokenStoreSysService.revokeAll(sysType, tenantId)
+        );
+    }
+
 }
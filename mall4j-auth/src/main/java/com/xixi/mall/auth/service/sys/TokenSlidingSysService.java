@@ -0,0 +1,135 @@
+package com.xixi.mall.auth.service.sys;
+
+import com.xixi.mall.auth.config.TokenSessionConfig;
+import com.xixi.mall.auth.constant.TokenRedisScript;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * token滑动过期
+ * 校验token时只在本地记录需要延长的token，同一token多次记录只保留最晚的过期时间，
+ * 定时将记录分批写入redis，避免每次校验token都产生写请求
+ */
+@Slf4j
+@Component
+public class TokenSlidingSysService {
+
+    /**
+     * 每次执行脚本最多延长的token数量
+     */
+    private static final int FLUSH_BATCH = 200;
+
+    /**
+     * accessToken -> 待写入的延长记录
+     */
+    private final Map<String, Extension> pendingExtensions = new ConcurrentHashMap<>();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TokenSessionConfig tokenSessionConfig;
+
+    /**
+     * 校验token后判断是否需要延长
+     *
+     * @param accessToken     真实的accessToken
+     * @param approvalKey     sysType:uid
+     * @param createTime      token的创建时间戳
+     * @param expiresIn       token的有效期，以秒为单位
+     * @param remainingMillis token剩余的有效期，以毫秒为单位
+     */
+    public void touch(String accessToken, String approvalKey, long createTime, int expiresIn, long remainingMillis) {
+
+        if (!tokenSessionConfig.isSlidingEnabled()
+                || remainingMillis >= tokenSessionConfig.getSlidingThreshold() * 1000L) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expireAt = Math.min(now + expiresIn * 1000L, createTime + tokenSessionConfig.getMaxLifetime() * 1000L);
+
+        // 已达到最长有效期
+        if (expireAt <= now + remainingMillis) {
+            return;
+        }
+
+        pendingExtensions.merge(accessToken, new Extension(approvalKey, expireAt),
+                (oldExtension, newExtension) -> oldExtension.expireAt >= newExtension.expireAt ? oldExtension : newExtension);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token.session.sliding-flush-interval:1000}")
+    public void flush() {
+
+        if (pendingExtensions.isEmpty()) {
+            return;
+        }
+
+        List<String> args = new ArrayList<>(FLUSH_BATCH * 3 + 4);
+        Iterator<Map.Entry<String, Extension>> iterator = pendingExtensions.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+
+            Map.Entry<String, Extension> entry = iterator.next();
+            iterator.remove();
+
+            if (args.isEmpty()) {
+                Collections.addAll(args, CacheNames.ACCESS, CacheNames.REFRESH_TO_ACCESS,
+                        CacheNames.UID_TO_ACCESS, String.valueOf(System.currentTimeMillis()));
+            }
+
+            Collections.addAll(args, entry.getKey(), entry.getValue().approvalKey, String.valueOf(entry.getValue().expireAt));
+
+            if (args.size() >= FLUSH_BATCH * 3 + 4) {
+                execute(args);
+                args.clear();
+            }
+        }
+
+        if (!args.isEmpty()) {
+            execute(args);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private void execute(List<String> args) {
+        try {
+            stringRedisTemplate.execute(TokenRedisScript.EXTEND_SESSIONS, Collections.emptyList(), args.toArray());
+        } catch (Exception e) {
+            // 延长失败不影响token本身，下次校验时会重新记录
+            log.error("extend token expiration error: {}", e.getMessage());
+        }
+    }
+
+    private static class Extension {
+
+        private final String approvalKey;
+
+        /**
+         * 新的过期时间戳
+         */
+        private final long expireAt;
+
+        private Extension(String approvalKey, long expireAt) {
+            this.approvalKey = approvalKey;
+            this.expireAt = expireAt;
+        }
+    }
+
+}
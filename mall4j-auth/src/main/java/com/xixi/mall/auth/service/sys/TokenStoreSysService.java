@@ -1,32 +1,39 @@
 package com.xixi.mall.auth.service.sys;
 
-import cn.hutool.core.codec.Base64;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.CollectionUtil;
-import cn.hutool.core.util.BooleanUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
+import com.xixi.mall.api.auth.bo.TokenCheckResultBo;
 import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
 import com.xixi.mall.api.auth.constant.SysTypeEnum;
 import com.xixi.mall.api.auth.vo.TokenInfoVo;
+import com.xixi.mall.auth.config.TokenSessionConfig;
+import com.xixi.mall.auth.constant.TokenRedisScript;
+import com.xixi.mall.common.auth.token.TokenCodec;
 import com.xixi.mall.common.cache.constant.CacheNames;
 import com.xixi.mall.common.core.enums.ResponseEnum;
-import com.xixi.mall.common.core.utils.PrincipalUtil;
 import com.xixi.mall.common.core.utils.ThrowUtils;
+import com.xixi.mall.common.security.bo.TokenClaimsBo;
 import com.xixi.mall.common.security.bo.TokenInfoBo;
+import com.xixi.mall.common.security.token.SignedTokenService;
+import com.xixi.mall.common.security.token.TokenRevocationList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanUtils;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
-import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 import static com.xixi.mall.common.core.constant.Constant.VOID;
 
@@ -45,33 +52,52 @@ public class TokenStoreSysService {
 
     private final StringRedisTemplate stringRedisTemplate;
 
+    private final SignedTokenService signedTokenService;
+
+    private final TokenRevocationList tokenRevocationList;
+
+    private final TokenSessionConfig tokenSessionConfig;
+
+    private final TokenSlidingSysService tokenSlidingSysService;
+
 
     /**
-     * 普通用户token过期时间  1小时
-     * 以秒为单位
+     * 批量删除token时每批处理的用户数
      */
-    private static final int GENERAL_USER_EXPIRES = 3600;
+    private static final int REVOKE_SCAN_BATCH = 500;
 
     /**
-     * 系统管理远token过期时间  2小时
-     * 以秒为单位
+     * 批量校验token时一次最多校验的数量
      */
-    private static final int ADMIN_USER_EXPIRES = 7200;
+    private static final int MAX_CHECK_TOKENS = 1000;
 
     /**
-     * 传递给前端的加密token数据由真实token + 系统当前时间 + 系统类型组成
-     * 该字段为真实token的长度
+     * 轮换refreshToken脚本的返回状态
      */
-    private static final int WEB_TOKEN_PREFIX_LENGTH = 32;
+    private static final String ROTATE_EXPIRED = "expired";
+
+    private static final String ROTATE_REUSED = "reused";
+
+    private static final String ROTATE_GRACE = "grace";
+
+    private static final String ROTATE_ROTATED = "rotated";
 
 
     public TokenStoreSysService(RedisTemplate<Object, Object> redisTemplate,
                                 RedisSerializer<Object> redisSerializer,
-                                StringRedisTemplate stringRedisTemplate) {
+                                StringRedisTemplate stringRedisTemplate,
+                                SignedTokenService signedTokenService,
+                                TokenRevocationList tokenRevocationList,
+                                TokenSessionConfig tokenSessionConfig,
+                                TokenSlidingSysService tokenSlidingSysService) {
 
         this.redisTemplate = redisTemplate;
         this.redisSerializer = redisSerializer;
         this.stringRedisTemplate = stringRedisTemplate;
+        this.signedTokenService = signedTokenService;
+        this.tokenRevocationList = tokenRevocationList;
+        this.tokenSessionConfig = tokenSessionConfig;
+        this.tokenSlidingSysService = tokenSlidingSysService;
     }
 
     /**
@@ -82,82 +108,90 @@ public class TokenStoreSysService {
      */
     public TokenInfoBo storeAccessToken(UserInfoInTokenBo userInfoInToken) {
 
-        TokenInfoBo tokenInfoBo = new TokenInfoBo();
-
         String accessToken = IdUtil.simpleUUID();
         String refreshToken = IdUtil.simpleUUID();
-
-        tokenInfoBo.setUserInfoInToken(userInfoInToken);
-        tokenInfoBo.setExpiresIn(getExpiresIn(userInfoInToken.getSysType()));
-
-        String uidToAccessKeyStr = getUidToAccessKey(getApprovalKey(userInfoInToken));
-        String accessKeyStr = getAccessKey(accessToken);
-        String refreshToAccessKeyStr = getRefreshToAccessKey(refreshToken);
+        String approvalKey = getApprovalKey(userInfoInToken);
+        int expiresIn = getExpiresIn(userInfoInToken.getSysType());
 
         // 一个用户会登陆很多次，每次登陆的token都会存在 uid_to_access里面
-        // 但是每次保存都会更新这个key的时间，而key里面的token有可能会过期，过期就要移除掉
-        List<String> existsAccessTokens = new LinkedList<>();
-
-        existsAccessTokens.add(accessToken + StrUtil.COLON + refreshToken); // 新的token数据
-
-        Optional.ofNullable(redisTemplate.opsForSet().size(uidToAccessKeyStr)) //移除过期token
-                .filter(size -> size != 0)
-                .map(size -> stringRedisTemplate.opsForSet().pop(uidToAccessKeyStr, size))
-                .filter(CollectionUtil::isNotEmpty)
-                .ifPresent(tokenInfoBoList -> tokenInfoBoList.forEach(
-                        accessTokenWithRefreshToken -> {
-                            String accessTokenData = accessTokenWithRefreshToken.split(StrUtil.COLON)[0];
-                            if (BooleanUtil.isTrue(stringRedisTemplate.hasKey(getAccessKey(accessTokenData)))) {
-                                existsAccessTokens.add(accessTokenWithRefreshToken);
-                            }
-                        })
-                );
-
-        redisTemplate.executePipelined((RedisCallback<Void>) connection -> {
-
-            long expiresIn = tokenInfoBo.getExpiresIn();
-
-            byte[] uidKey = uidToAccessKeyStr.getBytes(StandardCharsets.UTF_8),
-                    refreshKey = refreshToAccessKeyStr.getBytes(StandardCharsets.UTF_8),
-                    accessKey = accessKeyStr.getBytes(StandardCharsets.UTF_8);
-
-            for (String existsAccessToken : existsAccessTokens) {
-                connection.sAdd(uidKey, existsAccessToken.getBytes(StandardCharsets.UTF_8));
-            }
-
-            // 通过uid + sysType 保存access_token，当需要禁用用户的时候，可以根据uid + sysType 禁用用户
-            connection.expire(uidKey, expiresIn);
+        // uid_to_access 以过期时间为score，保存时按score移除已过期的token，超过最大会话数时挤掉最早登录的token
+        // 清理过期token与保存新token在同一个lua脚本中完成，只需一次网络往返，且同一用户并发登录时不会互相覆盖
+        List<?> evicted = stringRedisTemplate.execute(
+                TokenRedisScript.STORE_ACCESS_TOKEN,
+                Arrays.asList(
+                        getUidToAccessKey(approvalKey),
+                        getRefreshToAccessKey(refreshToken),
+                        getAccessKey(accessToken)
+                ),
+                CacheNames.ACCESS,
+                CacheNames.REFRESH_TO_ACCESS,
+                accessToken,
+                refreshToken,
+                approvalKey,
+                String.valueOf(expiresIn),
+                new String(Objects.requireNonNull(redisSerializer.serialize(userInfoInToken)), StandardCharsets.UTF_8),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(tokenSessionConfig.getMaxSessions(userInfoInToken.getSysType()))
+        );
+
+        revokeEvicted(evicted, 0, userInfoInToken.getSysType(), approvalKey);
+
+        return buildTokenInfo(accessToken, refreshToken, userInfoInToken);
+    }
 
-            // 通过refresh_token获取用户的access_token从而刷新token
-            connection.setEx(refreshKey, expiresIn, accessToken.getBytes(StandardCharsets.UTF_8));
+    /**
+     * 生成返回给前端的token信息
+     * 返回给前端是加密的token，开启签名时返回可在本地验签的签名token
+     *
+     * @param accessToken     真实的accessToken
+     * @param refreshToken    真实的refreshToken
+     * @param userInfoInToken 用户信息
+     * @return token信息
+     */
+    private TokenInfoBo buildTokenInfo(String accessToken, String refreshToken, UserInfoInTokenBo userInfoInToken) {
 
-            // 通过access_token保存用户的租户id，用户id，uid
-            connection.setEx(accessKey, expiresIn, Objects.requireNonNull(redisSerializer.serialize(userInfoInToken)));
+        TokenInfoBo tokenInfoBo = new TokenInfoBo();
 
-            return VOID;
-        });
+        tokenInfoBo.setUserInfoInToken(userInfoInToken);
+        tokenInfoBo.setExpiresIn(getExpiresIn(userInfoInToken.getSysType()));
 
-        // 返回给前端是加密的token
-        tokenInfoBo.setAccessToken(encryptToken(accessToken, userInfoInToken.getSysType()));
+        tokenInfoBo.setAccessToken(signedTokenService.isEnabled()
+                ? signedTokenService.sign(accessToken, System.currentTimeMillis() + tokenInfoBo.getExpiresIn() * 1000L, userInfoInToken)
+                : encryptToken(accessToken, userInfoInToken.getSysType()));
         tokenInfoBo.setRefreshToken(encryptToken(refreshToken, userInfoInToken.getSysType()));
 
         return tokenInfoBo;
     }
 
-    private int getExpiresIn(int sysType) {
+    /**
+     * 超过最大会话数被挤掉的token在redis中已删除，还需要吊销签名token并通知各节点移除本地缓存
+     *
+     * @param evicted     脚本返回值
+     * @param fromIndex   被挤掉的 accessToken:refreshToken 在返回值中的起始位置
+     * @param sysType     系统类型
+     * @param approvalKey sysType:uid
+     */
+    private void revokeEvicted(List<?> evicted, int fromIndex, Integer sysType, String approvalKey) {
 
-        // 普通用户
-        if (Objects.equals(sysType, SysTypeEnum.ORDINARY.getValue())) {
-            return GENERAL_USER_EXPIRES;
+        if (evicted == null || evicted.size() <= fromIndex) {
+            return;
         }
 
-        // 商家平台管理员过期时间 2小时
-        if (Objects.equals(sysType, SysTypeEnum.MULTISHOP.getValue())
-                || Objects.equals(sysType, SysTypeEnum.PLATFORM.getValue())) {
-            return ADMIN_USER_EXPIRES;
+        List<String> evictedAccessTokens = new ArrayList<>(evicted.size() - fromIndex);
+
+        for (Object member : evicted.subList(fromIndex, evicted.size())) {
+            evictedAccessTokens.add(StrUtil.subBefore(member.toString(), StrUtil.COLON, false));
         }
 
-        return GENERAL_USER_EXPIRES;
+        revokeSignedToken(evictedAccessTokens, sysType);
+        publishInvalidate(approvalKey);
+    }
+
+    /**
+     * 普通用户1小时，商家平台管理员2小时，与AuthFilter计算本地缓存过期时间使用同一配置
+     */
+    private int getExpiresIn(int sysType) {
+        return SysTypeEnum.getExpiresIn(sysType);
     }
 
     /**
@@ -173,20 +207,129 @@ public class TokenStoreSysService {
             ThrowUtils.throwErr("accessToken is blank");
         }
 
-        String realAccessToken = needDecrypt
-                ? decryptToken(accessToken)
-                : accessToken;
+        String realAccessToken = accessToken;
+        Long createTime = null;
+
+        if (needDecrypt && signedTokenService.isSignedToken(accessToken)) {
+            realAccessToken = verifySignedToken(accessToken);
+        } else if (needDecrypt) {
+            TokenCodec.DecodedToken decodedToken = decryptToken(accessToken);
+            realAccessToken = decodedToken.getToken();
+            createTime = decodedToken.getCreateTime();
+        }
+
+        String accessKey = getAccessKey(realAccessToken);
+
+        // 滑动过期只作用于base64 token，签名token的过期时间写在token中
+        if (createTime == null || !tokenSessionConfig.isSlidingEnabled()) {
+
+            UserInfoInTokenBo userInfoInTokenBo = (UserInfoInTokenBo) redisTemplate.opsForValue().get(accessKey);
+
+            if (userInfoInTokenBo == null) {
+                ThrowUtils.throwErr("accessToken 已过期");
+            }
+
+            return userInfoInTokenBo;
+        }
 
-        UserInfoInTokenBo userInfoInTokenBo = (UserInfoInTokenBo) redisTemplate.opsForValue()
-                .get(getAccessKey(realAccessToken));
+        // 一次管道同时读取用户信息与剩余有效期
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.get(accessKey);
+            stringConnection.pTtl(accessKey);
+            return VOID;
+        });
 
-        if (userInfoInTokenBo == null) {
+        if (results.get(0) == null) {
             ThrowUtils.throwErr("accessToken 已过期");
         }
 
+        UserInfoInTokenBo userInfoInTokenBo = deserializeUserInfo(results.get(0));
+        Long remainingMillis = (Long) results.get(1);
+
+        if (remainingMillis != null && remainingMillis > 0) {
+            tokenSlidingSysService.touch(realAccessToken, getApprovalKey(userInfoInTokenBo),
+                    createTime, getExpiresIn(userInfoInTokenBo.getSysType()), remainingMillis);
+        }
+
         return userInfoInTokenBo;
     }
 
+    /**
+     * 批量校验token，所有token通过一次mget读取
+     * 批量校验不会触发滑动过期
+     *
+     * @param accessTokens 前端传入的accessToken
+     * @return 与传入顺序一致的校验结果
+     */
+    public List<TokenCheckResultBo> checkTokens(List<String> accessTokens) {
+
+        if (CollUtil.isEmpty(accessTokens)) {
+            return Collections.emptyList();
+        }
+
+        if (accessTokens.size() > MAX_CHECK_TOKENS) {
+            ThrowUtils.throwErr("一次最多校验" + MAX_CHECK_TOKENS + "个token");
+        }
+
+        List<Object> accessKeys = new ArrayList<>(accessTokens.size());
+        List<Integer> indexes = new ArrayList<>(accessTokens.size());
+
+        for (int i = 0; i < accessTokens.size(); i++) {
+
+            String realAccessToken = decodeAccessToken(accessTokens.get(i));
+
+            if (realAccessToken != null) {
+                accessKeys.add(getAccessKey(realAccessToken));
+                indexes.add(i);
+            }
+        }
+
+        UserInfoInTokenBo[] userInfos = new UserInfoInTokenBo[accessTokens.size()];
+
+        if (!accessKeys.isEmpty()) {
+
+            List<Object> values = redisTemplate.opsForValue().multiGet(accessKeys);
+
+            for (int i = 0; values != null && i < values.size(); i++) {
+                userInfos[indexes.get(i)] = (UserInfoInTokenBo) values.get(i);
+            }
+        }
+
+        List<TokenCheckResultBo> results = new ArrayList<>(accessTokens.size());
+
+        for (int i = 0; i < accessTokens.size(); i++) {
+            results.add(new TokenCheckResultBo()
+                    .setAccessToken(accessTokens.get(i))
+                    .setExpired(userInfos[i] == null)
+                    .setUserInfoInToken(userInfos[i]));
+        }
+
+        return results;
+    }
+
+    /**
+     * 解析前端传入的accessToken，不抛出异常
+     *
+     * @param accessToken 前端传入的accessToken
+     * @return 真实的accessToken，无效时返回null
+     */
+    private String decodeAccessToken(String accessToken) {
+
+        if (StrUtil.isBlank(accessToken)) {
+            return null;
+        }
+
+        if (signedTokenService.isSignedToken(accessToken)) {
+            TokenClaimsBo claims = signedTokenService.verify(accessToken);
+            return claims == null ? null : claims.getJti();
+        }
+
+        TokenCodec.DecodedToken decodedToken = decodeToken(accessToken);
+
+        return decodedToken == null ? null : decodedToken.getToken();
+    }
+
     /**
      * 刷新token，并返回新的token
      *
@@ -199,24 +342,75 @@ public class TokenStoreSysService {
             ThrowUtils.throwErr("refreshToken is blank");
         }
 
-        String realRefreshToken = decryptToken(refreshToken);
+        TokenCodec.DecodedToken decodedRefreshToken = decryptToken(refreshToken);
+        String realRefreshToken = decodedRefreshToken.getToken();
+        int sysType = decodedRefreshToken.getSysType();
+
+        String newAccessToken = IdUtil.simpleUUID();
+        String newRefreshToken = IdUtil.simpleUUID();
+
+        // 校验、删除旧token、保存新token在同一个lua脚本中完成，多个页面同时刷新时只会轮换一次
+        List<?> result = stringRedisTemplate.execute(
+                TokenRedisScript.ROTATE_REFRESH_TOKEN,
+                Arrays.asList(
+                        getRefreshToAccessKey(realRefreshToken),
+                        getRefreshToAccessKey(newRefreshToken),
+                        getAccessKey(newAccessToken)
+                ),
+                CacheNames.ACCESS,
+                CacheNames.REFRESH_TO_ACCESS,
+                CacheNames.UID_TO_ACCESS,
+                realRefreshToken,
+                newAccessToken,
+                newRefreshToken,
+                String.valueOf(getExpiresIn(sysType)),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(tokenSessionConfig.getMaxSessions(sysType)),
+                String.valueOf(tokenSessionConfig.getRefreshGraceMillis())
+        );
+
+        String status = CollUtil.isEmpty(result) ? ROTATE_EXPIRED : result.get(0).toString();
+
+        // 宽限期内重复刷新，返回同一对新token
+        if (ROTATE_GRACE.equals(status)) {
+            return buildTokenInfo(result.get(1).toString(), result.get(2).toString(), deserializeUserInfo(result.get(3)));
+        }
 
-        String accessToken = stringRedisTemplate.opsForValue().get(getRefreshToAccessKey(realRefreshToken));
+        // 超过宽限期仍在使用已轮换的refreshToken，说明refreshToken可能已泄露，删除该用户的全部token
+        if (ROTATE_REUSED.equals(status)) {
 
-        if (StrUtil.isBlank(accessToken)) {
+            String approvalKey = result.get(1).toString();
+            logger.warn("rotated refreshToken reused, revoke all token of {}", approvalKey);
+
+            deleteAllToken(StrUtil.subBefore(approvalKey, StrUtil.COLON, false),
+                    Long.valueOf(StrUtil.subAfter(approvalKey, StrUtil.COLON, false)));
+
+            ThrowUtils.throwErr("refreshToken 已失效");
+        }
+
+        if (!ROTATE_ROTATED.equals(status)) {
             ThrowUtils.throwErr("refreshToken 已过期");
         }
 
-        UserInfoInTokenBo userInfoInTokenBo = getUserInfoByAccessToken(accessToken, false);
+        UserInfoInTokenBo userInfoInTokenBo = deserializeUserInfo(result.get(2));
+        String approvalKey = getApprovalKey(userInfoInTokenBo);
 
-        // 删除旧的refresh_token
-        stringRedisTemplate.delete(getRefreshToAccessKey(realRefreshToken));
+        // 旧的access_token已在脚本中删除
+        revokeSignedToken(Collections.singletonList(result.get(1).toString()), sysType);
+        publishInvalidate(approvalKey);
+        revokeEvicted(result, 3, sysType, approvalKey);
 
-        // 删除旧的access_token
-        stringRedisTemplate.delete(getAccessKey(accessToken));
+        return buildTokenInfo(newAccessToken, newRefreshToken, userInfoInTokenBo);
+    }
 
-        // 保存一份新的token
-        return storeAccessToken(userInfoInTokenBo);
+    /**
+     * 反序列化从redis中读取的用户信息
+     *
+     * @param userInfoJson 用户信息
+     * @return 用户信息
+     */
+    private UserInfoInTokenBo deserializeUserInfo(Object userInfoJson) {
+        return (UserInfoInTokenBo) redisSerializer.deserialize(userInfoJson.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -226,26 +420,260 @@ public class TokenStoreSysService {
 
         String uidKey = getUidToAccessKey(getApprovalKey(appId, uid));
 
-        Long size = redisTemplate.opsForSet().size(uidKey);
-
-        if (size == null || size == 0) return;
-
-        List<String> tokenInfoBoList = stringRedisTemplate.opsForSet().pop(uidKey, size);
+        Collection<String> tokenInfoBoList = listSessions(uidKey);
 
         if (CollUtil.isEmpty(tokenInfoBoList)) return;
 
+        List<String> accessTokens = new ArrayList<>(tokenInfoBoList.size());
+        List<String> keys = new ArrayList<>(tokenInfoBoList.size() * 2 + 1);
+
         for (String accessTokenWithRefreshToken : tokenInfoBoList) {
+            addSessionKeys(accessTokenWithRefreshToken, accessTokens, keys);
+        }
+
+        keys.add(uidKey);
+
+        // 一条unlink删除全部key，redis在后台线程回收内存
+        stringRedisTemplate.unlink(keys);
+
+        revokeSignedToken(accessTokens, Integer.valueOf(appId));
+        publishInvalidate(getApprovalKey(appId, uid));
+    }
+
+    /**
+     * 删除某个系统下全部用户的token，指定租户时只删除该租户下的用户
+     * 通过scan分批遍历 uid_to_access:sysType:*，每批的读取与删除各只需一次网络往返
+     *
+     * @param sysType  系统类型
+     * @param tenantId 租户id，为空时删除该系统下的全部token
+     * @return 删除的token数量
+     */
+    public long revokeAll(Integer sysType, Long tenantId) {
+
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(CacheNames.UID_TO_ACCESS + sysType + StrUtil.COLON + "*")
+                .count(REVOKE_SCAN_BATCH)
+                .build();
+
+        long revoked = 0;
+
+        try (Cursor<byte[]> cursor = stringRedisTemplate.executeWithStickyConnection(
+                connection -> connection.scan(options))) {
+
+            List<String> uidKeys = new ArrayList<>(REVOKE_SCAN_BATCH);
+
+            while (cursor.hasNext()) {
+
+                uidKeys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+
+                if (uidKeys.size() >= REVOKE_SCAN_BATCH) {
+                    revoked += revokeBatch(uidKeys, sysType, tenantId);
+                    uidKeys.clear();
+                }
+            }
 
-            String[] accessTokenWithRefreshTokenArr = accessTokenWithRefreshToken.split(StrUtil.COLON);
+            if (!uidKeys.isEmpty()) {
+                revoked += revokeBatch(uidKeys, sysType, tenantId);
+            }
 
-            String accessToken = accessTokenWithRefreshTokenArr[0];
-            String refreshToken = accessTokenWithRefreshTokenArr[1];
+        } catch (IOException e) {
+            logger.error("close scan cursor error: {}", e.getMessage());
+        }
 
-            redisTemplate.delete(getRefreshToAccessKey(refreshToken));
-            redisTemplate.delete(getAccessKey(accessToken));
+        // 未指定租户时整个系统的token都已删除，通知各节点移除该系统的本地缓存
+        if (tenantId == null) {
+            publishInvalidate(sysType.toString());
         }
 
-        redisTemplate.delete(uidKey);
+        return revoked;
+    }
+
+    /**
+     * 删除一批用户的token
+     *
+     * @param uidKeys  uid_to_access:sysType:uid
+     * @param sysType  系统类型
+     * @param tenantId 租户id，为空时不过滤
+     * @return 删除的token数量
+     */
+    private long revokeBatch(List<String> uidKeys, Integer sysType, Long tenantId) {
+
+        List<Collection<String>> sessionsList = listSessions(uidKeys);
+
+        List<String> accessTokens = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<String> approvalKeys = new ArrayList<>();
+
+        Map<String, UserInfoInTokenBo> userInfoMap = tenantId == null
+                ? Collections.emptyMap()
+                : getUserInfoMap(sessionsList);
+
+        for (int i = 0; i < uidKeys.size(); i++) {
+
+            Collection<String> sessions = sessionsList.get(i);
+
+            if (CollUtil.isEmpty(sessions)) {
+                continue;
+            }
+
+            // 同一用户的token属于同一租户，任意一个存活的token属于该租户即删除该用户的全部token
+            if (tenantId != null && sessions.stream()
+                    .map(session -> userInfoMap.get(StrUtil.subBefore(session, StrUtil.COLON, false)))
+                    .noneMatch(userInfo -> userInfo != null && Objects.equals(userInfo.getTenantId(), tenantId))) {
+                continue;
+            }
+
+            for (String session : sessions) {
+                addSessionKeys(session, accessTokens, keys);
+            }
+
+            keys.add(uidKeys.get(i));
+            approvalKeys.add(uidKeys.get(i).substring(CacheNames.UID_TO_ACCESS.length()));
+        }
+
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        stringRedisTemplate.unlink(keys);
+        revokeSignedToken(accessTokens, sysType);
+
+        if (tenantId != null) {
+            approvalKeys.forEach(this::publishInvalidate);
+        }
+
+        return accessTokens.size();
+    }
+
+    /**
+     * 批量读取token中保存的用户信息
+     *
+     * @param sessionsList accessToken:refreshToken
+     * @return accessToken -> 用户信息，已过期的token不在结果中
+     */
+    private Map<String, UserInfoInTokenBo> getUserInfoMap(List<Collection<String>> sessionsList) {
+
+        List<String> accessTokens = new ArrayList<>();
+
+        for (Collection<String> sessions : sessionsList) {
+            if (CollUtil.isNotEmpty(sessions)) {
+                sessions.forEach(session -> accessTokens.add(StrUtil.subBefore(session, StrUtil.COLON, false)));
+            }
+        }
+
+        if (accessTokens.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Object> accessKeys = new ArrayList<>(accessTokens.size());
+        accessTokens.forEach(accessToken -> accessKeys.add(getAccessKey(accessToken)));
+
+        List<Object> userInfos = redisTemplate.opsForValue().multiGet(accessKeys);
+
+        Map<String, UserInfoInTokenBo> userInfoMap = new HashMap<>(accessTokens.size() * 2);
+
+        for (int i = 0; userInfos != null && i < accessTokens.size(); i++) {
+            if (userInfos.get(i) != null) {
+                userInfoMap.put(accessTokens.get(i), (UserInfoInTokenBo) userInfos.get(i));
+            }
+        }
+
+        return userInfoMap;
+    }
+
+    /**
+     * 拆分 accessToken:refreshToken，收集accessToken以及需要删除的key
+     *
+     * @param session      accessToken:refreshToken
+     * @param accessTokens accessToken
+     * @param keys         需要删除的key
+     */
+    private void addSessionKeys(String session, List<String> accessTokens, List<String> keys) {
+
+        String[] accessTokenWithRefreshTokenArr = session.split(StrUtil.COLON);
+
+        String accessToken = accessTokenWithRefreshTokenArr[0];
+
+        accessTokens.add(accessToken);
+        keys.add(getAccessKey(accessToken));
+
+        if (accessTokenWithRefreshTokenArr.length > 1) {
+            keys.add(getRefreshToAccessKey(accessTokenWithRefreshTokenArr[1]));
+        }
+    }
+
+    /**
+     * 获取用户全部的 accessToken:refreshToken
+     * 兼容旧版本以set保存的索引，旧索引会在下次登录时迁移为zset，或在token全部过期后自然过期
+     *
+     * @param uidKey uid_to_access:sysType:uid
+     * @return accessToken:refreshToken
+     */
+    private Collection<String> listSessions(String uidKey) {
+
+        if (DataType.SET == stringRedisTemplate.type(uidKey)) {
+            return stringRedisTemplate.opsForSet().members(uidKey);
+        }
+
+        return stringRedisTemplate.opsForZSet().range(uidKey, 0, -1);
+    }
+
+    /**
+     * 批量获取用户全部的 accessToken:refreshToken，先以一次管道获取索引类型，再以一次管道读取索引
+     *
+     * @param uidKeys uid_to_access:sysType:uid
+     * @return 与uidKeys一一对应的 accessToken:refreshToken
+     */
+    @SuppressWarnings("unchecked")
+    private List<Collection<String>> listSessions(List<String> uidKeys) {
+
+        List<Object> types = stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            uidKeys.forEach(stringConnection::type);
+            return VOID;
+        });
+
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+
+            for (int i = 0; i < uidKeys.size(); i++) {
+                if (DataType.SET == types.get(i)) {
+                    stringConnection.sMembers(uidKeys.get(i));
+                } else {
+                    stringConnection.zRange(uidKeys.get(i), 0, -1);
+                }
+            }
+
+            return VOID;
+        });
+
+        List<Collection<String>> sessionsList = new ArrayList<>(results.size());
+
+        for (Object result : results) {
+            sessionsList.add((Collection<String>) result);
+        }
+
+        return sessionsList;
+    }
+
+    /**
+     * 通知各节点移除该用户的本地token缓存
+     *
+     * @param approvalKey sysType:uid
+     */
+    private void publishInvalidate(String approvalKey) {
+        stringRedisTemplate.convertAndSend(CacheNames.TOKEN_INVALIDATE_CHANNEL, approvalKey);
+    }
+
+    /**
+     * 吊销已签发的签名token，签名token在各节点本地校验，删除redis中的token后还需要通知各节点
+     *
+     * @param accessTokens 真实的accessToken
+     * @param sysType      系统类型
+     */
+    private void revokeSignedToken(List<String> accessTokens, Integer sysType) {
+        tokenRevocationList.revoke(accessTokens, System.currentTimeMillis() + getExpiresIn(sysType) * 1000L);
     }
 
     /**
@@ -279,7 +707,24 @@ public class TokenStoreSysService {
      * @return 加密token
      */
     private String encryptToken(String token, Integer sysType) {
-        return Base64.encode(token + System.currentTimeMillis() + sysType);
+        return TokenCodec.encode(token, System.currentTimeMillis(), sysType);
+    }
+
+    /**
+     * 校验签名token并取出jti
+     *
+     * @param token 签名token
+     * @return 真实的accessToken
+     */
+    private String verifySignedToken(String token) {
+
+        TokenClaimsBo claims = signedTokenService.verify(token);
+
+        if (claims == null) {
+            ThrowUtils.throwErr("accessToken 已过期");
+        }
+
+        return claims.getJti();
     }
 
     /**
@@ -288,40 +733,40 @@ public class TokenStoreSysService {
      * @param token token
      * @return 解密后的token
      */
-    private String decryptToken(String token) {
-
-        String decryptToken = null,
-                decryptStr = null;
+    private TokenCodec.DecodedToken decryptToken(String token) {
 
-        try {
+        TokenCodec.DecodedToken decodedToken = decodeToken(token);
 
-            decryptStr = Base64.decodeStr(token);
-            decryptToken = decryptStr.substring(0, WEB_TOKEN_PREFIX_LENGTH);
-
-        } catch (Exception e) {
-            logger.error(e.getMessage());
+        if (decodedToken == null) {
             ThrowUtils.throwErr("token 格式有误");
         }
 
-        // 创建token的时间
-        long createTokenTime = Long.parseLong(decryptStr.substring(WEB_TOKEN_PREFIX_LENGTH, 45));
+        return decodedToken;
+    }
 
-        // 系统类型
-        int sysType = Integer.parseInt(decryptStr.substring(45));
+    /**
+     * 解码token并校验是否超过最长有效期
+     *
+     * @param token token
+     * @return 解码后的token，格式有误或已超过最长有效期时返回null
+     */
+    private TokenCodec.DecodedToken decodeToken(String token) {
 
-        // token的过期时间
-        int expiresIn = getExpiresIn(sysType);
+        // 解码时已校验真实token只含数字和小写字母，防止解密后的token是脚本，从而对redis进行攻击
+        TokenCodec.DecodedToken decodedToken = TokenCodec.decode(token);
 
-        if (System.currentTimeMillis() - createTokenTime > expiresIn) {
-            ThrowUtils.throwErr("token 格式有误");
+        if (decodedToken == null) {
+            return null;
         }
 
-        // 防止解密后的token是脚本，从而对redis进行攻击，uuid只能是数字和小写字母
-        if (!PrincipalUtil.isSimpleChar(decryptToken)) {
-            ThrowUtils.throwErr("token 格式有误");
-        }
+        // token的最长有效期，开启滑动过期后token可以一直延长到最长有效期
+        long maxAge = tokenSessionConfig.isSlidingEnabled()
+                ? Math.max(tokenSessionConfig.getMaxLifetime(), getExpiresIn(decodedToken.getSysType()))
+                : getExpiresIn(decodedToken.getSysType());
 
-        return decryptToken;
+        return System.currentTimeMillis() - decodedToken.getCreateTime() > maxAge * 1000
+                ? null
+                : decodedToken;
     }
 
     /**
@@ -379,27 +824,68 @@ public class TokenStoreSysService {
 
         String uidToAccessKeyStr = getUidToAccessKey(getApprovalKey(sysType, uid));
 
-        Set<String> accessRefreshTokenSet = stringRedisTemplate.opsForSet().members(uidToAccessKeyStr);
+        Collection<String> accessRefreshTokenSet = listSessions(uidToAccessKeyStr);
 
         if (CollectionUtil.isEmpty(accessRefreshTokenSet)) {
             ThrowUtils.throwErr(ResponseEnum.UNAUTHORIZED);
         }
 
+        List<String> accessTokens = new ArrayList<>(accessRefreshTokenSet.size());
+
         for (String accessTokenWithRefreshToken : accessRefreshTokenSet) {
+            accessTokens.add(StrUtil.subBefore(accessTokenWithRefreshToken, StrUtil.COLON, false));
+        }
 
-            String[] accessTokenWithRefreshTokenArr = accessTokenWithRefreshToken.split(StrUtil.COLON);
+        // 一次管道读取全部token的用户信息与剩余过期时间
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
 
-            String accessKey = this.getAccessKey(accessTokenWithRefreshTokenArr[0]);
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
 
-            UserInfoInTokenBo oldUserInfoInTokenBo = (UserInfoInTokenBo) redisTemplate.opsForValue().get(accessKey);
+            for (String accessToken : accessTokens) {
+                String accessKey = getAccessKey(accessToken);
+                stringConnection.get(accessKey);
+                stringConnection.pTtl(accessKey);
+            }
 
-            if (oldUserInfoInTokenBo == null) {
+            return VOID;
+        });
+
+        byte[] newUserInfo = Objects.requireNonNull(redisSerializer.serialize(userInfoInTokenBo));
+
+        Map<String, Long> changedTtlMap = new HashMap<>(accessTokens.size() * 2);
+
+        for (int i = 0; i < accessTokens.size(); i++) {
+
+            String oldUserInfoJson = (String) results.get(i * 2);
+            Long ttl = (Long) results.get(i * 2 + 1);
+
+            // 已过期或即将过期的token无需更新
+            if (oldUserInfoJson == null || ttl == null || ttl <= 0) {
                 continue;
             }
 
-            BeanUtils.copyProperties(userInfoInTokenBo, oldUserInfoInTokenBo);
-            redisTemplate.opsForValue().set(accessKey, Objects.requireNonNull(userInfoInTokenBo), getExpiresIn(userInfoInTokenBo.getSysType()), TimeUnit.SECONDS);
+            UserInfoInTokenBo oldUserInfoInTokenBo = deserializeUserInfo(oldUserInfoJson);
 
+            if (!Objects.equals(oldUserInfoInTokenBo, userInfoInTokenBo)) {
+                changedTtlMap.put(accessTokens.get(i), ttl);
+            }
         }
+
+        if (changedTtlMap.isEmpty()) {
+            return;
+        }
+
+        // 按剩余过期时间重新写入，更新用户信息不延长token的有效期
+        stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+
+            changedTtlMap.forEach((accessToken, ttl) ->
+                    connection.pSetEx(getAccessKey(accessToken).getBytes(StandardCharsets.UTF_8), ttl, newUserInfo));
+
+            return VOID;
+        });
+
+        // 签名token中的用户信息已过时，吊销后前端通过refreshToken获取携带新用户信息的token
+        revokeSignedToken(new ArrayList<>(changedTtlMap.keySet()), Integer.valueOf(sysType));
+        publishInvalidate(getApprovalKey(sysType, uid));
     }
 }
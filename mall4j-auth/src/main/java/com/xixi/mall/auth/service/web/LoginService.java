@@ -3,17 +3,13 @@ package com.xixi.mall.auth.service.web;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
 import com.xixi.mall.api.auth.vo.TokenInfoVo;
-import com.xixi.mall.api.rabc.dto.ClearUserPermissionsCacheDto;
-import com.xixi.mall.api.rabc.feign.PermissionFeignClient;
 import com.xixi.mall.auth.constant.AuthAccountStatusEnum;
 import com.xixi.mall.auth.entity.AuthAccountEntity;
 import com.xixi.mall.auth.mapper.AuthAccountMapper;
 import com.xixi.mall.auth.service.sys.TokenStoreSysService;
 import com.xixi.mall.auth.vo.request.LoginReq;
 import com.xixi.mall.common.core.constant.StatusEnum;
-import com.xixi.mall.common.core.enums.ResponseEnum;
 import com.xixi.mall.common.core.utils.ThrowUtils;
-import com.xixi.mall.common.core.webbase.vo.ServerResponse;
 import com.xixi.mall.common.security.context.AuthUserContext;
 import org.springframework.beans.BeanUtils;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -37,9 +33,6 @@ public class LoginService {
     @Resource
     private TokenStoreSysService tokenStoreSysService;
 
-    @Resource
-    private PermissionFeignClient permissionFeignClient;
-
 
     public static final String USER_NOT_FOUND_SECRET = "USER_NOT_FOUND_SECRET";
 
@@ -86,18 +79,6 @@ public class LoginService {
         UserInfoInTokenBo infoInTokenBo = new UserInfoInTokenBo();
         BeanUtils.copyProperties(authAccountEntity, infoInTokenBo);
 
-        ClearUserPermissionsCacheDto clearUserPermissionsCacheDto = new ClearUserPermissionsCacheDto()
-                .setSysType(infoInTokenBo.getSysType())
-                .setUserId(infoInTokenBo.getUserId());
-
-        // 将以前的权限清理了,以免权限有缓存
-        ServerResponse<Void> clearResponseEntity = permissionFeignClient
-                .clearUserPermissionsCache(clearUserPermissionsCacheDto);
-
-        if (!clearResponseEntity.isSuccess()) {
-            ThrowUtils.throwErr(ResponseEnum.UNAUTHORIZED);
-        }
-
         // 保存token，返回token数据给前端，这里是最重要的
         return tokenStoreSysService.storeAndGetVo(infoInTokenBo);
     }
@@ -106,13 +87,6 @@ public class LoginService {
 
         UserInfoInTokenBo userInfoInToken = AuthUserContext.get();
 
-        ClearUserPermissionsCacheDto clearUserPermissionsCacheDto = new ClearUserPermissionsCacheDto()
-                .setSysType(userInfoInToken.getSysType())
-                .setUserId(userInfoInToken.getUserId());
-
-        // 将以前的权限清理了,以免权限有缓存
-        permissionFeignClient.clearUserPermissionsCache(clearUserPermissionsCacheDto);
-
         // 删除该用户在该系统的token
         tokenStoreSysService.deleteAllToken(userInfoInToken.getSysType().toString(), userInfoInToken.getUid());
 
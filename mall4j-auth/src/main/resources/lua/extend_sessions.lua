@@ -0,0 +1,41 @@
+-- 批量延长token的过期时间，同时更新会话索引中的score以及refreshToken的过期时间
+-- ARGV[1] access key 前缀
+-- ARGV[2] refresh_to_access key 前缀
+-- ARGV[3] uid_to_access key 前缀
+-- ARGV[4] 当前时间戳，以毫秒为单位
+-- 之后每三个参数为一组：accessToken、sysType:uid、新的过期时间戳
+-- 返回成功延长的token数量
+
+local now = tonumber(ARGV[4])
+local extended = 0
+
+for i = 5, #ARGV, 3 do
+    local accessToken, approvalKey, expireAt = ARGV[i], ARGV[i + 1], tonumber(ARGV[i + 2])
+
+    -- token已被删除时不再延长
+    if redis.call('PEXPIREAT', ARGV[1] .. accessToken, expireAt) == 1 then
+        extended = extended + 1
+
+        local uidKey = ARGV[3] .. approvalKey
+        local indexType = redis.call('TYPE', uidKey)['ok']
+
+        if indexType == 'zset' then
+            local prefix = accessToken .. ':'
+            for _, member in ipairs(redis.call('ZRANGE', uidKey, 0, -1)) do
+                if string.sub(member, 1, #prefix) == prefix then
+                    redis.call('ZADD', uidKey, expireAt, member)
+                    redis.call('PEXPIREAT', ARGV[2] .. string.sub(member, #prefix + 1), expireAt)
+                end
+            end
+            local last = redis.call('ZRANGE', uidKey, -1, -1, 'WITHSCORES')
+            redis.call('PEXPIREAT', uidKey, last[2])
+        elseif indexType == 'set' then
+            -- 旧版本的索引没有score，只保证索引不早于token过期
+            if expireAt > now + redis.call('PTTL', uidKey) then
+                redis.call('PEXPIREAT', uidKey, expireAt)
+            end
+        end
+    end
+end
+
+return extended
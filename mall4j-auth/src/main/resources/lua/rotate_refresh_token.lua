@@ -0,0 +1,92 @@
+-- 使用refreshToken换取新的token，整个过程在redis中原子执行，需要与 store_session.lua 拼接后执行
+-- 旧的refreshToken不会直接删除，而是替换为 rotated|轮换时间戳|新accessToken|新refreshToken|sysType:uid 并保留剩余的过期时间
+-- 宽限期内再次使用旧的refreshToken返回同一对新token，超过宽限期再次使用视为refreshToken被盗用
+-- KEYS[1] refresh_to_access:旧refreshToken
+-- KEYS[2] refresh_to_access:新refreshToken
+-- KEYS[3] access:新accessToken
+-- ARGV[1] access key 前缀
+-- ARGV[2] refresh_to_access key 前缀
+-- ARGV[3] uid_to_access key 前缀
+-- ARGV[4] 旧refreshToken
+-- ARGV[5] 新accessToken
+-- ARGV[6] 新refreshToken
+-- ARGV[7] 过期时间，以秒为单位
+-- ARGV[8] 当前时间戳，以毫秒为单位
+-- ARGV[9] 最大会话数，小于等于0表示不限制
+-- ARGV[10] 宽限期，以毫秒为单位
+-- 返回
+-- {'expired'}
+-- {'reused', sysType:uid}
+-- {'grace', 新accessToken, 新refreshToken, 用户信息}
+-- {'rotated', 旧accessToken, 用户信息, 被挤掉的 accessToken:refreshToken ...}
+
+local now = tonumber(ARGV[8])
+local value = redis.call('GET', KEYS[1])
+
+if not value then
+    return { 'expired' }
+end
+
+local rotatedAt, rotatedAccess, rotatedRefresh, rotatedApprovalKey =
+        string.match(value, '^rotated|(%d+)|([^|]+)|([^|]+)|(.+)$')
+
+if rotatedAt ~= nil then
+    if now - tonumber(rotatedAt) > tonumber(ARGV[10]) then
+        return { 'reused', rotatedApprovalKey }
+    end
+    local rotatedUserInfo = redis.call('GET', ARGV[1] .. rotatedAccess)
+    if not rotatedUserInfo then
+        return { 'expired' }
+    end
+    return { 'grace', rotatedAccess, rotatedRefresh, rotatedUserInfo }
+end
+
+local accessToken, approvalKey = string.match(value, '^([^|]+)|(.+)$')
+
+-- 旧版本的值只有accessToken
+if accessToken == nil then
+    accessToken = value
+end
+
+local userInfo = redis.call('GET', ARGV[1] .. accessToken)
+
+if not userInfo then
+    return { 'expired' }
+end
+
+if approvalKey == nil then
+    local sysType = string.match(userInfo, '"sysType":(%d+)')
+    local uid = string.match(userInfo, '"uid":(%d+)')
+    if sysType == nil or uid == nil then
+        return { 'expired' }
+    end
+    approvalKey = sysType .. ':' .. uid
+end
+
+local uidKey = ARGV[3] .. approvalKey
+
+-- 移除旧的会话，旧的refreshToken保留轮换记录用于识别重复使用
+redis.call('DEL', ARGV[1] .. accessToken)
+if redis.call('TYPE', uidKey)['ok'] == 'set' then
+    redis.call('SREM', uidKey, accessToken .. ':' .. ARGV[4])
+else
+    redis.call('ZREM', uidKey, accessToken .. ':' .. ARGV[4])
+end
+
+local pttl = redis.call('PTTL', KEYS[1])
+if pttl > 0 then
+    redis.call('SET', KEYS[1], 'rotated|' .. ARGV[8] .. '|' .. ARGV[5] .. '|' .. ARGV[6] .. '|' .. approvalKey, 'PX', pttl)
+end
+
+local evicted = storeSession(uidKey, ARGV[1], ARGV[2], ARGV[5] .. ':' .. ARGV[6],
+        tonumber(ARGV[7]), now, tonumber(ARGV[9]))
+
+redis.call('SETEX', KEYS[2], ARGV[7], ARGV[5] .. '|' .. approvalKey)
+redis.call('SETEX', KEYS[3], ARGV[7], userInfo)
+
+local result = { 'rotated', accessToken, userInfo }
+for _, member in ipairs(evicted) do
+    table.insert(result, member)
+end
+
+return result
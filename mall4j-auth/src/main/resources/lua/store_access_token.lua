@@ -0,0 +1,23 @@
+-- 保存用户token，整个过程在redis中原子执行，需要与 store_session.lua 拼接后执行
+-- refresh_to_access 的值为 accessToken|sysType:uid
+-- KEYS[1] uid_to_access:sysType:uid
+-- KEYS[2] refresh_to_access:refreshToken
+-- KEYS[3] access:accessToken
+-- ARGV[1] access key 前缀
+-- ARGV[2] refresh_to_access key 前缀
+-- ARGV[3] accessToken
+-- ARGV[4] refreshToken
+-- ARGV[5] sysType:uid
+-- ARGV[6] 过期时间，以秒为单位
+-- ARGV[7] 用户信息
+-- ARGV[8] 当前时间戳，以毫秒为单位
+-- ARGV[9] 最大会话数，小于等于0表示不限制
+-- 返回被挤掉的 accessToken:refreshToken
+
+local evicted = storeSession(KEYS[1], ARGV[1], ARGV[2], ARGV[3] .. ':' .. ARGV[4],
+        tonumber(ARGV[6]), tonumber(ARGV[8]), tonumber(ARGV[9]))
+
+redis.call('SETEX', KEYS[2], ARGV[6], ARGV[3] .. '|' .. ARGV[5])
+redis.call('SETEX', KEYS[3], ARGV[6], ARGV[7])
+
+return evicted
@@ -0,0 +1,45 @@
+-- 保存会话索引，移除已过期的会话，超过最大会话数时挤掉最早登录的会话
+-- uid_to_access 为zset，member为 accessToken:refreshToken，score为该token的过期时间戳
+-- 返回被挤掉的 accessToken:refreshToken
+local function storeSession(uidKey, accessPrefix, refreshPrefix, member, expiresIn, now, maxSessions)
+
+    -- 旧版本的索引是set，按access key剩余的过期时间迁移为zset
+    if redis.call('TYPE', uidKey)['ok'] == 'set' then
+        local members = redis.call('SMEMBERS', uidKey)
+        redis.call('DEL', uidKey)
+        for _, oldMember in ipairs(members) do
+            local accessToken = string.match(oldMember, '^([^:]+)')
+            if accessToken ~= nil then
+                local pttl = redis.call('PTTL', accessPrefix .. accessToken)
+                if pttl > 0 then
+                    redis.call('ZADD', uidKey, now + pttl, oldMember)
+                end
+            end
+        end
+    end
+
+    redis.call('ZREMRANGEBYSCORE', uidKey, '-inf', now)
+    redis.call('ZADD', uidKey, now + expiresIn * 1000, member)
+
+    local evicted = {}
+
+    if maxSessions > 0 then
+        local overflow = redis.call('ZCARD', uidKey) - maxSessions
+        if overflow > 0 then
+            evicted = redis.call('ZRANGE', uidKey, 0, overflow - 1)
+            redis.call('ZREMRANGEBYRANK', uidKey, 0, overflow - 1)
+            for _, evictedMember in ipairs(evicted) do
+                local accessToken, refreshToken = string.match(evictedMember, '^([^:]+):(.+)$')
+                if accessToken ~= nil then
+                    redis.call('DEL', accessPrefix .. accessToken, refreshPrefix .. refreshToken)
+                end
+            end
+        end
+    end
+
+    -- 索引跟随最晚过期的token过期
+    local last = redis.call('ZRANGE', uidKey, -1, -1, 'WITHSCORES')
+    redis.call('PEXPIREAT', uidKey, last[2])
+
+    return evicted
+end
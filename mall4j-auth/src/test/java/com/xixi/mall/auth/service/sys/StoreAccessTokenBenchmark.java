@@ -0,0 +1,241 @@
+package com.xixi.mall.auth.service.sys;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.xixi.mall.auth.constant.TokenRedisScript;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.xixi.mall.common.core.constant.Constant.VOID;
+
+/**
+ * 已有多个有效会话的用户登录时，保存token的吞吐量(logins/sec)
+ * 对比原先 SCARD + SPOP + 逐个EXISTS + pipeline 的方式与现在的 store_access_token.lua
+ * 需要一个可以随意写入的redis，默认 127.0.0.1:6379，可通过 -Dredis.host -Dredis.port 指定
+ * 在根目录 mvn test-compile -pl mall4j-auth -am 后以 org.openjdk.jmh.Main 运行，或直接运行 main 方法，加 -t 可指定并发登录的线程数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreAccessTokenBenchmark {
+
+    private static final int EXPIRES_IN = 3600;
+
+    private static final String USER_INFO = "{\"@class\":\"com.xixi.mall.api.auth.bo.UserInfoInTokenBo\","
+            + "\"uid\":10001,\"userId\":10001,\"tenantId\":1,\"sysType\":1,\"isAdmin\":0}";
+
+    /**
+     * 登录前用户已有的有效会话数
+     */
+    @Param({"1", "10", "100"})
+    private int sessions;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private String approvalKey;
+
+    private String legacyUidKey;
+
+    private String scriptUidKey;
+
+    /**
+     * 上一次登录新增的会话，登录后移除，保证每次登录前的会话数不变
+     */
+    private String lastUidKey;
+
+    private String lastAccessToken;
+
+    private String lastRefreshToken;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "127.0.0.1"), Integer.getInteger("redis.port", 6379)));
+        connectionFactory.afterPropertiesSet();
+
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        stringRedisTemplate.afterPropertiesSet();
+
+        approvalKey = "1:" + IdUtil.getSnowflake(1, 1).nextId();
+        legacyUidKey = CacheNames.UID_TO_ACCESS + "legacy:" + approvalKey;
+        scriptUidKey = CacheNames.UID_TO_ACCESS + approvalKey;
+
+        long expireAt = System.currentTimeMillis() + EXPIRES_IN * 1000L;
+
+        for (int i = 0; i < sessions; i++) {
+
+            String accessToken = IdUtil.simpleUUID();
+            String member = accessToken + StrUtil.COLON + IdUtil.simpleUUID();
+
+            stringRedisTemplate.opsForValue().set(CacheNames.ACCESS + accessToken, USER_INFO, EXPIRES_IN, TimeUnit.SECONDS);
+            stringRedisTemplate.opsForSet().add(legacyUidKey, member);
+            stringRedisTemplate.opsForZSet().add(scriptUidKey, member, expireAt);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeLastSession() {
+
+        if (lastUidKey == null) {
+            return;
+        }
+
+        String member = lastAccessToken + StrUtil.COLON + lastRefreshToken;
+
+        stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+
+            StringRedisConnection conn = (StringRedisConnection) connection;
+
+            conn.sRem(legacyUidKey, member);
+            conn.zRem(scriptUidKey, member);
+            conn.del(CacheNames.ACCESS + lastAccessToken, CacheNames.REFRESH_TO_ACCESS + lastRefreshToken);
+
+            return VOID;
+        });
+
+        lastUidKey = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        Set<String> accessKeys = new HashSet<>();
+
+        for (String member : stringRedisTemplate.opsForSet().members(legacyUidKey)) {
+            accessKeys.add(CacheNames.ACCESS + StrUtil.subBefore(member, StrUtil.COLON, false));
+        }
+
+        accessKeys.add(legacyUidKey);
+        accessKeys.add(scriptUidKey);
+
+        stringRedisTemplate.delete(accessKeys);
+        connectionFactory.destroy();
+    }
+
+    /**
+     * 原先 TokenStoreSysService.storeAccessToken 的保存方式
+     */
+    @Benchmark
+    public Object legacyStore() {
+
+        String accessToken = IdUtil.simpleUUID();
+        String refreshToken = IdUtil.simpleUUID();
+
+        List<String> existsAccessTokens = new LinkedList<>();
+
+        existsAccessTokens.add(accessToken + StrUtil.COLON + refreshToken);
+
+        Long size = stringRedisTemplate.opsForSet().size(legacyUidKey);
+
+        if (size != null && size != 0) {
+
+            List<String> members = stringRedisTemplate.opsForSet().pop(legacyUidKey, size);
+
+            if (members != null) {
+                for (String member : members) {
+                    if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(
+                            CacheNames.ACCESS + member.split(StrUtil.COLON)[0]))) {
+                        existsAccessTokens.add(member);
+                    }
+                }
+            }
+        }
+
+        List<Object> result = stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+
+            StringRedisConnection conn = (StringRedisConnection) connection;
+
+            for (String existsAccessToken : existsAccessTokens) {
+                conn.sAdd(legacyUidKey, existsAccessToken);
+            }
+
+            conn.expire(legacyUidKey, EXPIRES_IN);
+            conn.setEx(CacheNames.REFRESH_TO_ACCESS + refreshToken, EXPIRES_IN, accessToken);
+            conn.setEx(CacheNames.ACCESS + accessToken, EXPIRES_IN, USER_INFO);
+
+            return VOID;
+        });
+
+        remember(legacyUidKey, accessToken, refreshToken);
+
+        return result;
+    }
+
+    /**
+     * 现在 TokenStoreSysService.storeAccessToken 的保存方式，不限制最大会话数
+     */
+    @Benchmark
+    public Object scriptStore() {
+
+        String accessToken = IdUtil.simpleUUID();
+        String refreshToken = IdUtil.simpleUUID();
+
+        List<?> evicted = stringRedisTemplate.execute(
+                TokenRedisScript.STORE_ACCESS_TOKEN,
+                Arrays.asList(
+                        scriptUidKey,
+                        CacheNames.REFRESH_TO_ACCESS + refreshToken,
+                        CacheNames.ACCESS + accessToken
+                ),
+                CacheNames.ACCESS,
+                CacheNames.REFRESH_TO_ACCESS,
+                accessToken,
+                refreshToken,
+                approvalKey,
+                String.valueOf(EXPIRES_IN),
+                USER_INFO,
+                String.valueOf(System.currentTimeMillis()),
+                "0"
+        );
+
+        remember(scriptUidKey, accessToken, refreshToken);
+
+        return evicted;
+    }
+
+    private void remember(String uidKey, String accessToken, String refreshToken) {
+        lastUidKey = uidKey;
+        lastAccessToken = accessToken;
+        lastRefreshToken = refreshToken;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StoreAccessTokenBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.xixi.mall.common.auth.constant;
+
+/**
+ * 网关与各服务共用的鉴权常量
+ */
+public interface AuthConstant {
+
+    /**
+     * 已校验的用户身份，由网关校验token后签名写入，格式与签名token相同
+     */
+    String IDENTITY_HEADER = "X-Mall4j-Identity";
+
+    /**
+     * 未授权的状态码
+     */
+    String UNAUTHORIZED_CODE = "A00004";
+
+    /**
+     * 未授权的信息
+     */
+    String UNAUTHORIZED_MSG = "Unauthorized";
+
+    /**
+     * 未授权时返回的json，与 ServerResponse.fail(ResponseEnum.UNAUTHORIZED) 一致
+     */
+    String UNAUTHORIZED_RESPONSE =
+            "{\"code\":\"" + UNAUTHORIZED_CODE + "\",\"msg\":\"" + UNAUTHORIZED_MSG + "\",\"data\":null}";
+
+    /**
+     * 签名token的类型：登录返回的accessToken
+     */
+    String TOKEN_TYPE_ACCESS = "access";
+
+    /**
+     * 签名token的类型：网关或上游服务签名的用户身份
+     */
+    String TOKEN_TYPE_IDENTITY = "identity";
+
+}
@@ -0,0 +1,38 @@
+package com.xixi.mall.common.auth.constant;
+
+/**
+ * 网关直接读取的redis key，OauthCacheNames 与 RbacCacheNames 引用这里的定义
+ */
+public interface AuthKeys {
+
+    /**
+     * 参考CacheKeyPrefix，@Cacheable 的 cacheNames 与 key 之间的连接字符
+     */
+    String UNION = "::";
+
+    /**
+     * 保存token 缓存使用key
+     */
+    String ACCESS = "mall4j_oauth:token:access:";
+
+    /**
+     * uri对应的权限缓存key，后接系统类型
+     */
+    String URI_PERMISSION_KEY = "mall4j_rbac:permission:uri_permissions:";
+
+    /**
+     * 用户拥有的权限位图缓存key，后接 sysType:userId，第n位表示是否拥有id为n的权限
+     */
+    String USER_PERMISSION_BITMAP_KEY = "mall4j_rbac:permission:user_permission_bitmap:";
+
+    /**
+     * 用户权限版本，后接 sysType:userId，用户角色变化时自增
+     */
+    String USER_PERMISSION_EPOCH_KEY = "mall4j_rbac:permission:user_epoch:";
+
+    /**
+     * 系统权限版本，后接系统类型，菜单或权限变化时自增
+     */
+    String SYS_PERMISSION_EPOCH_KEY = "mall4j_rbac:permission:sys_epoch:";
+
+}
@@ -0,0 +1,118 @@
+package com.xixi.mall.common.auth.token;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * 签名token与用户身份共用的编解码
+ * 格式为 kid.payload.signature，payload为声明的json，signature为 HmacSHA256(kid.payload)，均使用base64url编码
+ * 声明中的 typ 区分签名token与用户身份，两者的密钥即使相同也不能互相冒用
+ * 旧的base64 token不会包含"."，以此区分两种token
+ */
+public final class SignedTokenCodec {
+
+    /**
+     * 声明中类型的字段名
+     */
+    public static final String CLAIM_TYPE = "typ";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final char SEPARATOR = '.';
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private SignedTokenCodec() {
+    }
+
+    /**
+     * 是否是签名token
+     *
+     * @param token token
+     * @return 是否是签名token
+     */
+    public static boolean isSignedToken(String token) {
+        return token != null && token.indexOf(SEPARATOR) > 0;
+    }
+
+    /**
+     * 签名
+     *
+     * @param kid     密钥id
+     * @param key     密钥
+     * @param payload 声明的json
+     * @return kid.payload.signature
+     */
+    public static String sign(String kid, byte[] key, byte[] payload) {
+
+        String signingInput = kid + SEPARATOR + ENCODER.encodeToString(payload);
+
+        return signingInput + SEPARATOR + ENCODER.encodeToString(hmac(key, signingInput));
+    }
+
+    /**
+     * 验签并取出声明，先验签再返回payload，防止解析不可信的数据
+     *
+     * @param token       kid.payload.signature
+     * @param keyResolver 密钥id -> 密钥，不存在时返回null
+     * @return 声明的json，格式有误、密钥不存在或签名错误时返回null
+     */
+    public static byte[] verify(String token, Function<String, byte[]> keyResolver) {
+
+        if (token == null) {
+            return null;
+        }
+
+        int first = token.indexOf(SEPARATOR),
+                last = token.lastIndexOf(SEPARATOR);
+
+        if (first <= 0 || last == first) {
+            return null;
+        }
+
+        byte[] key = keyResolver.apply(token.substring(0, first));
+
+        if (key == null) {
+            return null;
+        }
+
+        byte[] signature;
+        byte[] payload;
+
+        try {
+            signature = DECODER.decode(token.substring(last + 1));
+            payload = DECODER.decode(token.substring(first + 1, last));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        return MessageDigest.isEqual(signature, hmac(key, token.substring(0, last)))
+                ? payload
+                : null;
+    }
+
+    /**
+     * HmacSHA256
+     *
+     * @param key          密钥
+     * @param signingInput 签名内容
+     * @return 签名
+     */
+    public static byte[] hmac(byte[] key, String signingInput) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
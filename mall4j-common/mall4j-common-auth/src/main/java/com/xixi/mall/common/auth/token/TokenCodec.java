@@ -0,0 +1,211 @@
+package com.xixi.mall.common.auth.token;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 传递给前端的base64 token编解码
+ * token明文由 真实token(32位小写字母或数字) + 创建时间戳(13位) + 系统类型 组成，
+ * 解码时直接从base64字符解析各字段，不生成中间字符串，也不使用正则，复用解码结果时不创建任何对象
+ * auth服务编码，网关与auth服务解码
+ */
+public final class TokenCodec {
+
+    /**
+     * 真实token的长度
+     */
+    public static final int TOKEN_LENGTH = 32;
+
+    /**
+     * 创建时间戳的长度
+     */
+    private static final int TIME_LENGTH = 13;
+
+    /**
+     * 系统类型最多的位数
+     */
+    private static final int MAX_SYS_TYPE_LENGTH = 9;
+
+    private static final int MAX_DECODED_LENGTH = TOKEN_LENGTH + TIME_LENGTH + MAX_SYS_TYPE_LENGTH;
+
+    private static final int MAX_ENCODED_LENGTH = (MAX_DECODED_LENGTH + 2) / 3 * 4;
+
+    private static final byte[] ENCODE_TABLE =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * base64字符 -> 6位值，同时兼容url安全的base64，非法字符为-1
+     */
+    private static final byte[] DECODE_TABLE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE_TABLE, (byte) -1);
+        for (int i = 0; i < ENCODE_TABLE.length; i++) {
+            DECODE_TABLE[ENCODE_TABLE[i]] = (byte) i;
+        }
+        DECODE_TABLE['-'] = 62;
+        DECODE_TABLE['_'] = 63;
+    }
+
+    private TokenCodec() {
+    }
+
+    /**
+     * 编码token
+     *
+     * @param token      真实token
+     * @param createTime 创建时间戳
+     * @param sysType    系统类型
+     * @return 传递给前端的token
+     */
+    public static String encode(String token, long createTime, int sysType) {
+        // 编码只在登录时执行，JDK的实现比逐字节查表更快
+        return Base64.getEncoder().encodeToString((token + createTime + sysType).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 解码token，每次都会创建新的解码结果
+     * 请求量大的地方使用 {@link #decode(CharSequence, DecodedToken)} 复用解码结果
+     *
+     * @param webToken 前端传入的token
+     * @return 解码结果，格式有误时返回null
+     */
+    public static DecodedToken decode(String webToken) {
+
+        DecodedToken decodedToken = new DecodedToken();
+
+        return decode(webToken, decodedToken) ? decodedToken : null;
+    }
+
+    /**
+     * 解码token到复用的解码结果中，不创建任何对象
+     * base64字符解码出一个字节就校验或累加一个字节，不经过中间的字节数组及字符串
+     *
+     * @param webToken 前端传入的token
+     * @param target   复用的解码结果，格式有误时内容无意义
+     * @return 格式是否正确
+     */
+    public static boolean decode(CharSequence webToken, DecodedToken target) {
+
+        if (webToken == null) {
+            return false;
+        }
+
+        int length = webToken.length();
+
+        // 去掉末尾的填充
+        while (length > 0 && webToken.charAt(length - 1) == '=') {
+            length--;
+        }
+
+        if (length == 0 || length > MAX_ENCODED_LENGTH || length % 4 == 1) {
+            return false;
+        }
+
+        int plainLength = length * 3 / 4;
+
+        if (plainLength <= TOKEN_LENGTH + TIME_LENGTH) {
+            return false;
+        }
+
+        target.reset();
+
+        int position = 0, bits = 0, bitCount = 0;
+        long createTime = 0, sysType = 0;
+
+        for (int i = 0; i < length; i++) {
+
+            char c = webToken.charAt(i);
+            int value = c < 128 ? DECODE_TABLE[c] : -1;
+
+            if (value < 0) {
+                return false;
+            }
+
+            bits = bits << 6 | value;
+            bitCount += 6;
+
+            if (bitCount < 8) {
+                continue;
+            }
+
+            bitCount -= 8;
+            int b = bits >>> bitCount & 0xFF;
+
+            if (position < TOKEN_LENGTH) {
+                // 防止解密后的token是脚本，从而对redis进行攻击，uuid只能是数字和小写字母
+                if ((b < 'a' || b > 'z') && (b < '0' || b > '9')) {
+                    return false;
+                }
+                target.token[position] = (byte) b;
+            } else if (b < '0' || b > '9') {
+                return false;
+            } else if (position < TOKEN_LENGTH + TIME_LENGTH) {
+                createTime = createTime * 10 + b - '0';
+            } else {
+                sysType = sysType * 10 + b - '0';
+            }
+
+            position++;
+        }
+
+        target.createTime = createTime;
+        target.sysType = (int) sysType;
+
+        return true;
+    }
+
+    /**
+     * 解码后的token，可以复用
+     */
+    public static final class DecodedToken {
+
+        /**
+         * 真实token
+         */
+        private final byte[] token = new byte[TOKEN_LENGTH];
+
+        /**
+         * 真实token的字符串，需要时才创建
+         */
+        private String tokenString;
+
+        /**
+         * 创建时间戳
+         */
+        private long createTime;
+
+        /**
+         * 系统类型
+         */
+        private int sysType;
+
+        private void reset() {
+            tokenString = null;
+        }
+
+        /**
+         * 真实token，第一次调用时创建字符串
+         *
+         * @return 真实token
+         */
+        public String getToken() {
+
+            if (tokenString == null) {
+                tokenString = new String(token, StandardCharsets.US_ASCII);
+            }
+
+            return tokenString;
+        }
+
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        public int getSysType() {
+            return sysType;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.xixi.mall.common.auth.util;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 读取 GenericJackson2JsonRedisSerializer 写入的带类型信息的json
+ * 网关没有对应的类，无法按类型反序列化，只能读取为去掉类型信息的json树
+ */
+public final class TypedJsonUtil {
+
+    /**
+     * 对象的类型信息字段，与 ObjectMapper.activateDefaultTyping 使用的字段一致
+     */
+    private static final String CLASS_PROPERTY = JsonTypeInfo.Id.CLASS.getDefaultPropertyName();
+
+    private TypedJsonUtil() {
+    }
+
+    /**
+     * 读取json并去掉全部类型信息
+     *
+     * @param objectMapper objectMapper
+     * @param json         带类型信息的json
+     * @return 去掉类型信息的json树
+     * @throws IOException json格式有误
+     */
+    public static JsonNode readUntyped(ObjectMapper objectMapper, String json) throws IOException {
+        return untyped(objectMapper.readTree(json));
+    }
+
+    /**
+     * 去掉类型信息：对象去掉 @class 字段，集合 ["java.util.ArrayList",[...]] 还原为 [...]
+     *
+     * @param node 带类型信息的json树
+     * @return 去掉类型信息的json树
+     */
+    public static JsonNode untyped(JsonNode node) {
+
+        if (node instanceof ObjectNode) {
+
+            ObjectNode objectNode = (ObjectNode) node;
+            objectNode.remove(CLASS_PROPERTY);
+
+            Iterator<Map.Entry<String, JsonNode>> fields = objectNode.fields();
+
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                field.setValue(untyped(field.getValue()));
+            }
+
+            return objectNode;
+        }
+
+        if (node instanceof ArrayNode) {
+
+            ArrayNode arrayNode = (ArrayNode) node;
+
+            if (arrayNode.size() == 2 && arrayNode.get(0).isTextual() && arrayNode.get(1).isArray()) {
+                return untyped(arrayNode.get(1));
+            }
+
+            for (int i = 0; i < arrayNode.size(); i++) {
+                arrayNode.set(i, untyped(arrayNode.get(i)));
+            }
+        }
+
+        return node;
+    }
+
+}
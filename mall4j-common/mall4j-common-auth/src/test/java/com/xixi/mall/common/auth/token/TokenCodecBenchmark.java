@@ -0,0 +1,182 @@
+package com.xixi.mall.common.auth.token;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * TokenCodec 与原先 base64解码 + 截取字符串 + 正则校验 的解码对比
+ * 运行 main 方法，或 mvn test-compile 后以 org.openjdk.jmh.Main 运行，加 -prof gc 可查看每次解码分配的内存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCodecBenchmark {
+
+    private static final int TOKEN_COUNT = 1024;
+
+    /**
+     * 原先 PrincipalUtil.isSimpleChar 使用的正则
+     */
+    private static final String SIMPLE_CHAR_REGEXP = "^[a-z0-9]+$";
+
+    private String[] webTokens;
+
+    private String encodeToken = "0123456789abcdef0123456789abcdef";
+
+    private long encodeCreateTime = 1600000000000L;
+
+    private int encodeSysType = 1;
+
+    private int index;
+
+    private final TokenCodec.DecodedToken reusedToken = new TokenCodec.DecodedToken();
+
+    @Setup
+    public void setup() {
+
+        webTokens = new String[TOKEN_COUNT];
+
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+
+            String token = UUID.randomUUID().toString().replace("-", "");
+            long createTime = System.currentTimeMillis() - ThreadLocalRandom.current().nextInt(3600000);
+            int sysType = i % 3;
+
+            webTokens[i] = TokenCodec.encode(token, createTime, sysType);
+
+            // 两种解码的结果必须一致，否则对比没有意义
+            TokenCodec.DecodedToken decoded = TokenCodec.decode(webTokens[i]);
+            LegacyToken legacy = legacyDecode(webTokens[i]);
+
+            if (decoded == null || legacy == null
+                    || !Objects.equals(decoded.getToken(), legacy.token)
+                    || decoded.getCreateTime() != legacy.createTime
+                    || decoded.getSysType() != legacy.sysType
+                    || !decoded.getToken().equals(token)) {
+                throw new IllegalStateException("decode mismatch: " + webTokens[i]);
+            }
+
+            // 复用解码结果时，结果不能受上一次解码的影响
+            if (!TokenCodec.decode(webTokens[i], reusedToken)
+                    || !reusedToken.getToken().equals(token)
+                    || reusedToken.getCreateTime() != createTime
+                    || reusedToken.getSysType() != sysType) {
+                throw new IllegalStateException("reused decode mismatch: " + webTokens[i]);
+            }
+        }
+    }
+
+    /**
+     * 复用解码结果，AuthFilter及网关的用法，不创建任何对象
+     */
+    @Benchmark
+    public long codecDecode() {
+        return TokenCodec.decode(nextToken(), reusedToken)
+                ? reusedToken.getCreateTime() + reusedToken.getSysType()
+                : -1;
+    }
+
+    /**
+     * 复用解码结果并取出真实token，只创建token字符串
+     */
+    @Benchmark
+    public String codecDecodeToken() {
+        return TokenCodec.decode(nextToken(), reusedToken) ? reusedToken.getToken() : null;
+    }
+
+    /**
+     * 每次创建新的解码结果
+     */
+    @Benchmark
+    public TokenCodec.DecodedToken codecDecodeNew() {
+        return TokenCodec.decode(nextToken());
+    }
+
+    @Benchmark
+    public LegacyToken legacyDecode() {
+        return legacyDecode(nextToken());
+    }
+
+    @Benchmark
+    public String codecEncode() {
+        return TokenCodec.encode(encodeToken, encodeCreateTime, encodeSysType);
+    }
+
+    @Benchmark
+    public String legacyEncode() {
+        return Base64.getEncoder().encodeToString(
+                (encodeToken + encodeCreateTime + encodeSysType).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String nextToken() {
+        return webTokens[index++ & (TOKEN_COUNT - 1)];
+    }
+
+    /**
+     * 原先 TokenStoreSysService 的解码方式
+     */
+    private static LegacyToken legacyDecode(String webToken) {
+
+        String decryptStr;
+
+        try {
+            decryptStr = new String(Base64.getDecoder().decode(webToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        String token = decryptStr.substring(0, TokenCodec.TOKEN_LENGTH);
+
+        if (!Pattern.compile(SIMPLE_CHAR_REGEXP).matcher(token).matches()) {
+            return null;
+        }
+
+        return new LegacyToken(token,
+                Long.parseLong(decryptStr.substring(TokenCodec.TOKEN_LENGTH, 45)),
+                Integer.parseInt(decryptStr.substring(45)));
+    }
+
+    public static final class LegacyToken {
+
+        private final String token;
+
+        private final long createTime;
+
+        private final int sysType;
+
+        private LegacyToken(String token, long createTime, int sysType) {
+            this.token = token;
+            this.createTime = createTime;
+            this.sysType = sysType;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TokenCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.xixi.mall.common.cache.adapter;
+
+import java.util.List;
+
+/**
+ * 实现该接口之后，该cacheName的缓存通过布隆过滤器拦截一定不存在的id
+ * 只适用于以id为key的缓存，缓存的key与 String.valueOf(id) 一致；
+ * 新增数据后需调用 CacheBloomFilterManager.add 加入布隆过滤器，否则在下次重建前会被当作不存在
+ */
+public interface CacheBloomFilterAdapter {
+
+    /**
+     * 需要拦截的缓存
+     *
+     * @return cacheName
+     */
+    String getCacheName();
+
+    /**
+     * 预计的id数量，实际数量超过时误判率会升高，重建时会按上次的数量扩容
+     *
+     * @return 预计的id数量
+     */
+    long getExpectedInsertions();
+
+    /**
+     * 误判率，即不存在的id被当作存在的概率
+     *
+     * @return 误判率
+     */
+    default double getFalsePositiveProbability() {
+        return 0.01;
+    }
+
+    /**
+     * 按id升序分批加载所有存在的id，用于重建布隆过滤器
+     *
+     * @param lastId 上一批的最后一个id，第一批为空
+     * @param limit  每批数量
+     * @return id列表，数量小于limit时表示加载完毕
+     */
+    List<?> listIds(Object lastId, int limit);
+
+}
@@ -7,6 +7,7 @@ import lombok.ToString;
 
 /**
  * 通过 cacheName 配置 和 时间告诉缓存多久清楚一遍
+ * 配置了本地缓存大小时，在redis之前增加一级本地缓存
  */
 @Setter
 @Getter
@@ -18,4 +19,19 @@ public class CacheNameWithTtlBo {
 
     private Integer ttl;
 
+    /**
+     * 本地缓存最多缓存多少个key，为空或不大于0时不使用本地缓存
+     */
+    private Integer localMaximumSize;
+
+    /**
+     * 本地缓存时间，以秒为单位，为空时与ttl一致
+     * 失效通知丢失时本地缓存最多保留该时间，不宜过长
+     */
+    private Integer localTtl;
+
+    public CacheNameWithTtlBo(String cacheName, Integer ttl) {
+        this(cacheName, ttl, null, null);
+    }
+
 }
@@ -0,0 +1,34 @@
+package com.xixi.mall.common.cache.bo;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量查询缓存的结果
+ * 未命中的key可以通过一次 IN 查询加载后批量写回缓存
+ *
+ * @param <K> key
+ * @param <V> 缓存的值
+ */
+@Setter
+@Getter
+@ToString
+public class MultiGetResultBo<K, V> {
+
+    /**
+     * 命中的 key -> 值，值为null时表示已缓存为空（确定不存在），无需再查询，顺序与查询时一致
+     */
+    private Map<K, V> hits = new LinkedHashMap<>();
+
+    /**
+     * 未命中的key，顺序与查询时一致
+     */
+    private List<K> missingKeys = new ArrayList<>();
+
+}
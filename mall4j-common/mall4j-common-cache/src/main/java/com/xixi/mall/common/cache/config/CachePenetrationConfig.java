@@ -0,0 +1,41 @@
+package com.xixi.mall.common.cache.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 缓存穿透保护配置
+ * 实现了 CacheBloomFilterAdapter 的缓存在本地布隆过滤器中判断id一定不存在时直接返回空，不查询redis及数据库；
+ * 空值的缓存时间缩短为 nullValueTtl，避免新增的数据长时间查询为空
+ */
+@Setter
+@Getter
+@ToString
+@Configuration
+@ConfigurationProperties("cache.penetration")
+public class CachePenetrationConfig {
+
+    /**
+     * 是否开启布隆过滤器，关闭后所有缓存不再拦截
+     */
+    private boolean enabled = true;
+
+    /**
+     * 空值的缓存时间，以秒为单位，不大于0时与缓存的过期时间一致
+     */
+    private long nullValueTtl = 60;
+
+    /**
+     * 重建布隆过滤器的间隔，以毫秒为单位，启动后立即重建一次，重建完成前不拦截
+     */
+    private long rebuildInterval = 3600000;
+
+    /**
+     * 重建时每批从数据库加载的id数量
+     */
+    private int rebuildBatchSize = 10000;
+
+}
@@ -0,0 +1,58 @@
+package com.xixi.mall.common.cache.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 缓存击穿保护配置
+ * 同一个key同时只有一个线程加载，可选通过redis分布式锁保证集群内只有一个节点加载；
+ * 缓存快过期时按 XFetch 算法由命中的请求提前重新加载；写入redis的过期时间增加随机抖动，避免同时预热的缓存同时过期
+ * 单线程加载与提前加载只对 @Cacheable(sync = true) 生效
+ */
+@Setter
+@Getter
+@ToString
+@Configuration
+@ConfigurationProperties("cache.protect")
+public class CacheProtectConfig {
+
+    /**
+     * 是否开启单线程加载与提前加载
+     */
+    private boolean enabled = true;
+
+    /**
+     * 是否通过redis分布式锁保证集群内只有一个节点加载
+     */
+    private boolean distributedLockEnabled = false;
+
+    /**
+     * 等待分布式锁的最长时间，以毫秒为单位，超时后直接加载
+     */
+    private long lockWaitTime = 3000;
+
+    /**
+     * 本地锁对象超过该时间未使用时移除，同时为移除任务的执行间隔，以毫秒为单位
+     */
+    private long lockExpireInterval = 60000;
+
+    /**
+     * 是否在缓存过期前提前加载
+     */
+    private boolean earlyRefreshEnabled = true;
+
+    /**
+     * XFetch 算法的beta，越大越早重新加载
+     */
+    private double earlyRefreshBeta = 1.0;
+
+
+    /**
+     * 过期时间的随机缩短比例，0.1表示实际过期时间为配置的 90% ~ 100%，0表示不抖动
+     */
+    private double ttlJitter = 0.1;
+
+}
@@ -8,6 +8,12 @@ import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.xixi.mall.common.cache.adapter.CacheTtlAdapter;
 import com.xixi.mall.common.cache.bo.CacheNameWithTtlBo;
+import com.xixi.mall.common.cache.manager.CacheBloomFilterManager;
+import com.xixi.mall.common.cache.manager.JitterRedisCacheWriter;
+import com.xixi.mall.common.cache.manager.MeteredRedisCacheWriter;
+import com.xixi.mall.common.cache.manager.NullValueRedisCacheWriter;
+import com.xixi.mall.common.cache.manager.TwoLevelCacheManager;
+import com.xixi.mall.common.cache.utils.CacheMeterUtil;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
@@ -19,14 +25,17 @@ import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.integration.redis.util.RedisLockRegistry;
 
 import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @EnableCaching
@@ -34,16 +43,51 @@ import java.util.stream.Collectors;
 public class RedisCacheConfig {
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory factory, CacheTtlAdapter adapter) {
+    public CacheManager cacheManager(RedisConnectionFactory factory, CacheTtlAdapter adapter,
+                                     StringRedisTemplate stringRedisTemplate,
+                                     RedisMessageListenerContainer redisMessageListenerContainer,
+                                     CacheProtectConfig cacheProtectConfig,
+                                     RedisLockRegistry redisLockRegistry,
+                                     CachePenetrationConfig cachePenetrationConfig,
+                                     CacheBloomFilterManager cacheBloomFilterManager) {
+
+        long nullValueTtl = cachePenetrationConfig.getNullValueTtl();
+
+        // RedisUtil 的直接读写按缓存名统计
+        if (adapter != null) {
+            CacheMeterUtil.registerCacheNames(adapter.listCacheNameWithTtl()
+                    .stream()
+                    .map(CacheNameWithTtlBo::getCacheName)
+                    .collect(Collectors.toList()));
+        }
+
+        // 过期时间随机缩短，避免同时预热的缓存同时过期；空值使用较短的过期时间；统计redis读写次数及大小
+        RedisCacheWriter cacheWriter = new MeteredRedisCacheWriter(new NullValueRedisCacheWriter(
+                new JitterRedisCacheWriter(RedisCacheWriter.nonLockingRedisCacheWriter(factory),
+                        cacheProtectConfig.getTtlJitter()),
+                nullValueTtl > 0 ? Duration.ofSeconds(nullValueTtl) : null,
+                redisSerializer()));
 
         RedisCacheManager redisCacheManager = new RedisCacheManager(
-                RedisCacheWriter.nonLockingRedisCacheWriter(factory),
+                cacheWriter,
                 this.getRedisConfig(3600), // 默认策略，未配置的 key 会使用这个
                 this.getSpecifyRedisConfig(adapter) // 指定 key 策略
         );
+        redisCacheManager.afterPropertiesSet();
+
+        // 配置了本地缓存的 key 在redis之前增加一级本地缓存，事务感知由外层统一处理
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(
+                redisCacheManager,
+                this.getLocalCacheConfig(adapter),
+                stringRedisTemplate,
+                redisMessageListenerContainer,
+                cacheProtectConfig,
+                redisLockRegistry,
+                cacheBloomFilterManager
+        );
 
-        redisCacheManager.setTransactionAware(true);
-        return redisCacheManager;
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
     }
 
     private Map<String, RedisCacheConfiguration> getSpecifyRedisConfig(CacheTtlAdapter adapter) {
@@ -60,6 +104,21 @@ public class RedisCacheConfig {
                 ));
     }
 
+    private Map<String, CacheNameWithTtlBo> getLocalCacheConfig(CacheTtlAdapter adapter) {
+
+        if (adapter == null) {
+            return Collections.emptyMap();
+        }
+
+        return adapter.listCacheNameWithTtl()
+                .stream()
+                .filter(cacheBo -> cacheBo.getLocalMaximumSize() != null && cacheBo.getLocalMaximumSize() > 0)
+                .collect(Collectors.toMap(CacheNameWithTtlBo::getCacheName
+                        , Function.identity()
+                        , (a, b) -> a
+                ));
+    }
+
     private RedisCacheConfiguration getRedisConfig(Integer seconds) {
 
         return RedisCacheConfiguration.defaultCacheConfig()
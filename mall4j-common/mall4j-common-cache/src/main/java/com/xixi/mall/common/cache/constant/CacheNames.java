@@ -1,5 +1,7 @@
 package com.xixi.mall.common.cache.constant;
 
+import com.xixi.mall.common.auth.constant.AuthKeys;
+
 /**
  * 缓存名字
  */
@@ -15,11 +17,21 @@ public interface CacheNames extends RbacCacheNames
      * 参考CacheKeyPrefix
      * cacheNames 与 key 之间的默认连接字符
      */
-    String UNION = "::";
+    String UNION = AuthKeys.UNION;
 
     /**
      * key内部的连接字符（自定义）
      */
     String UNION_KEY = ":";
 
+    /**
+     * 本地缓存失效通知频道，两级缓存写入或删除redis后通知其它节点移除本地缓存
+     */
+    String LOCAL_CACHE_EVICT_CHANNEL = "mall4j_cache:local_evict";
+
+    /**
+     * 布隆过滤器新增通知频道，新增数据后通知所有节点加入本地的布隆过滤器
+     */
+    String BLOOM_FILTER_ADD_CHANNEL = "mall4j_cache:bloom_add";
+
 }
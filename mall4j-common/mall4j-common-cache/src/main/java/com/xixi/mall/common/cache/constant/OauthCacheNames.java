@@ -1,5 +1,7 @@
 package com.xixi.mall.common.cache.constant;
 
+import com.xixi.mall.common.auth.constant.AuthKeys;
+
 public interface OauthCacheNames {
 
     /**
@@ -15,7 +17,7 @@ public interface OauthCacheNames {
     /**
      * 保存token 缓存使用key
      */
-    String ACCESS = OAUTH_TOKEN_PREFIX + "access:";
+    String ACCESS = AuthKeys.ACCESS;
 
     /**
      * 刷新token 缓存使用key
@@ -26,4 +28,14 @@ public interface OauthCacheNames {
      * 根据uid获取保存的token key缓存使用的key
      */
     String UID_TO_ACCESS = OAUTH_TOKEN_PREFIX + "uid_to_access:";
+
+    /**
+     * 已吊销的签名token列表 zset，member为 jti:过期时间戳，score为吊销时间戳
+     */
+    String REVOKED_ACCESS = OAUTH_TOKEN_PREFIX + "revoked_access";
+
+    /**
+     * token失效通知频道，消息内容为 sysType:uid
+     */
+    String TOKEN_INVALIDATE_CHANNEL = OAUTH_TOKEN_PREFIX + "invalidate";
 }
@@ -1,5 +1,7 @@
 package com.xixi.mall.common.cache.constant;
 
+import com.xixi.mall.common.auth.constant.AuthKeys;
+
 public interface RbacCacheNames {
 
     /**
@@ -17,16 +19,56 @@ public interface RbacCacheNames {
      */
     String USER_PERMISSIONS_KEY = RBAC_PREFIX + "permission:user_permissions:";
 
+    /**
+     * 用户拥有的权限位图缓存key，第n位表示是否拥有id为n的权限
+     */
+    String USER_PERMISSION_BITMAP_KEY = AuthKeys.USER_PERMISSION_BITMAP_KEY;
+
+    /**
+     * 权限 -> 整数id 的hash，后接系统类型
+     */
+    String PERMISSION_ID_KEY = RBAC_PREFIX + "permission:ids:";
+
+    /**
+     * 权限id的自增序列，后接系统类型
+     */
+    String PERMISSION_ID_SEQ_KEY = RBAC_PREFIX + "permission:id_seq:";
+
     /**
      * uri对应的权限缓存key
      */
-    String URI_PERMISSION_KEY = RBAC_PREFIX + "permission:uri_permissions:";
+    String URI_PERMISSION_KEY = AuthKeys.URI_PERMISSION_KEY;
+
+    /**
+     * 用户权限版本，后接 sysType:userId，用户角色变化时自增
+     */
+    String USER_PERMISSION_EPOCH_KEY = AuthKeys.USER_PERMISSION_EPOCH_KEY;
+
+    /**
+     * 系统权限版本，后接系统类型，菜单或权限变化时自增
+     */
+    String SYS_PERMISSION_EPOCH_KEY = AuthKeys.SYS_PERMISSION_EPOCH_KEY;
+
+    /**
+     * 用户权限失效通知频道，消息内容为 sysType:userId，只有sysType时表示该系统下全部用户
+     */
+    String USER_PERMISSIONS_INVALIDATE_CHANNEL = RBAC_PREFIX + "permission:user_permissions_invalidate";
 
     /**
      * uri对应的权限缓存key
      */
     String MENU_LIST_KEY = RBAC_PREFIX + "menu:list:";
 
+    /**
+     * 菜单 + 菜单下的权限 树缓存key
+     */
+    String MENU_TREE_KEY = RBAC_PREFIX + "menu:tree:";
+
+    /**
+     * 菜单路由失效通知频道，消息内容为系统类型
+     */
+    String MENU_ROUTE_INVALIDATE_CHANNEL = RBAC_PREFIX + "menu:route_invalidate";
+
     /**
      * 菜单id key
      */
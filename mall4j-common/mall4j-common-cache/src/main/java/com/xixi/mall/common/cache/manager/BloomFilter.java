@@ -0,0 +1,107 @@
+package com.xixi.mall.common.cache.manager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 本地布隆过滤器，线程安全
+ * 位数 m = -n * ln(p) / (ln2)^2，哈希次数 k = m / n * ln2，第i次哈希为 h1 + i * h2，
+ * h1、h2 由 FNV-1a 64位哈希经两次不同的混淆得到
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    /**
+     * 加入的次数，重复加入也会计数，只用于估算下次重建的大小
+     */
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * @param expectedInsertions 预计数量
+     * @param fpp                误判率
+     */
+    public BloomFilter(long expectedInsertions, double fpp) {
+
+        long n = Math.max(expectedInsertions, 1);
+        double p = Math.max(Math.min(fpp, 0.5), Double.MIN_VALUE);
+
+        long m = Math.max((long) (-n * Math.log(p) / (Math.log(2) * Math.log(2))), Long.SIZE);
+        int longs = (int) Math.min((m + Long.SIZE - 1) / Long.SIZE, Integer.MAX_VALUE - 8);
+
+        this.bits = new AtomicLongArray(longs);
+        this.bitSize = (long) longs * Long.SIZE;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    public void put(String value) {
+
+        long[] hash = hash(value);
+
+        for (int i = 0; i < hashFunctions; i++) {
+
+            long index = index(hash, i);
+            int arrayIndex = (int) (index >>> 6);
+            long mask = 1L << index;
+
+            long current;
+
+            do {
+                current = bits.get(arrayIndex);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(arrayIndex, current, current | mask));
+        }
+
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(String value) {
+
+        long[] hash = hash(value);
+
+        for (int i = 0; i < hashFunctions; i++) {
+
+            long index = index(hash, i);
+
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    private long index(long[] hash, int i) {
+        return ((hash[0] + i * hash[1]) & Long.MAX_VALUE) % bitSize;
+    }
+
+    private static long[] hash(String value) {
+
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        return new long[]{mix(hash), mix(hash ^ 0x9e3779b97f4a7c15L) | 1};
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.xixi.mall.common.cache.manager;
+
+/**
+ * 单个缓存的布隆过滤器
+ * 重建期间新加入的id同时加入正在重建的过滤器，重建完成后替换，第一次重建完成前不拦截
+ */
+public class BloomFilterGuard {
+
+    /**
+     * 第一次重建完成前为空
+     */
+    private volatile BloomFilter current;
+
+    /**
+     * 不在重建时为空
+     */
+    private volatile BloomFilter rebuilding;
+
+    /**
+     * id是否可能存在
+     *
+     * @param id id
+     * @return 为false时一定不存在
+     */
+    public boolean mightContain(Object id) {
+        BloomFilter filter = current;
+        return filter == null || filter.mightContain(String.valueOf(id));
+    }
+
+    public synchronized void add(Object id) {
+
+        String value = String.valueOf(id);
+
+        if (current != null) {
+            current.put(value);
+        }
+
+        if (rebuilding != null) {
+            rebuilding.put(value);
+        }
+    }
+
+    /**
+     * @return 当前过滤器的加入次数，用于估算重建的大小
+     */
+    long getInsertions() {
+        BloomFilter filter = current;
+        return filter == null ? 0 : filter.getInsertions();
+    }
+
+    synchronized void startRebuild(BloomFilter filter) {
+        rebuilding = filter;
+    }
+
+    synchronized void finishRebuild() {
+        if (rebuilding != null) {
+            current = rebuilding;
+            rebuilding = null;
+        }
+    }
+
+    synchronized void abortRebuild() {
+        rebuilding = null;
+    }
+
+}
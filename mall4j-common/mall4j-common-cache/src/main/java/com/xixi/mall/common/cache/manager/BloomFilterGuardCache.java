@@ -0,0 +1,98 @@
+package com.xixi.mall.common.cache.manager;
+
+import com.xixi.mall.common.cache.utils.CacheMeterUtil;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 布隆过滤器判断key一定不存在时直接返回空值，不查询redis，也不调用加载方法
+ * get(key) 返回值为空的 ValueWrapper，@Cacheable 会当作命中直接返回null
+ */
+public class BloomFilterGuardCache implements Cache {
+
+    private final Cache delegate;
+
+    private final BloomFilterGuard guard;
+
+    private final Counter rejectionCounter;
+
+    public BloomFilterGuardCache(Cache delegate, BloomFilterGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+        this.rejectionCounter = CacheMeterUtil.rejectionCounter(delegate.getName());
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return reject(key) ? new SimpleValueWrapper(null) : delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return reject(key) ? null : delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return reject(key) ? null : delegate.get(key, valueLoader);
+    }
+
+    /**
+     * 写入非空值说明该key存在，加入本节点的布隆过滤器
+     */
+    @Override
+    public void put(Object key, Object value) {
+
+        delegate.put(key, value);
+
+        if (value != null) {
+            guard.add(key);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+
+        if (value != null) {
+            guard.add(key);
+        }
+
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    private boolean reject(Object key) {
+
+        if (guard.mightContain(key)) {
+            return false;
+        }
+
+        rejectionCounter.increment();
+        return true;
+    }
+
+}
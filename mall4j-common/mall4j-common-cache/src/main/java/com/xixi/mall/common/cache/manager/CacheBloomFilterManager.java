@@ -0,0 +1,229 @@
+package com.xixi.mall.common.cache.manager;
+
+import com.xixi.mall.common.cache.adapter.CacheBloomFilterAdapter;
+import com.xixi.mall.common.cache.config.CachePenetrationConfig;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 布隆过滤器管理
+ * 每个实现了 CacheBloomFilterAdapter 的缓存在每个节点有一个本地布隆过滤器，定时从数据库重建；
+ * 新增数据后通过redis发布订阅通知所有节点加入，消息为 cacheName\nid1\nid2...，通知丢失时在下次重建后恢复
+ */
+@Slf4j
+@Component
+public class CacheBloomFilterManager implements DisposableBean {
+
+    private static final String SEPARATOR = "\n";
+
+    @Resource
+    private CachePenetrationConfig cachePenetrationConfig;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private ObjectProvider<CacheBloomFilterAdapter> adapterProvider;
+
+    /**
+     * cacheName -> 布隆过滤器
+     */
+    private final Map<String, BloomFilterGuard> guards = new ConcurrentHashMap<>();
+
+    private final Map<String, CacheBloomFilterAdapter> adapters = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private ExecutorService rebuildExecutor;
+
+    @PostConstruct
+    public void init() {
+
+        adapterProvider.orderedStream().forEach(adapter -> {
+            adapters.put(adapter.getCacheName(), adapter);
+            guards.put(adapter.getCacheName(), new BloomFilterGuard());
+        });
+
+        if (guards.isEmpty()) {
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-bloom-rebuild-");
+        threadFactory.setDaemon(true);
+        rebuildExecutor = Executors.newSingleThreadExecutor(threadFactory);
+
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> onAdd(message),
+                new ChannelTopic(CacheNames.BLOOM_FILTER_ADD_CHANNEL));
+    }
+
+    /**
+     * 为配置了布隆过滤器的缓存增加拦截
+     *
+     * @param cache 缓存
+     * @return 未配置或未开启时返回原缓存
+     */
+    public Cache guard(Cache cache) {
+
+        BloomFilterGuard guard = guards.get(cache.getName());
+
+        if (guard == null || !cachePenetrationConfig.isEnabled()) {
+            return cache;
+        }
+
+        return new BloomFilterGuardCache(cache, guard);
+    }
+
+    /**
+     * id是否可能存在
+     *
+     * @param cacheName cacheName
+     * @param id        id
+     * @return 未配置或未开启时返回true
+     */
+    public boolean mightContain(String cacheName, Object id) {
+
+        BloomFilterGuard guard = guards.get(cacheName);
+
+        return guard == null || !cachePenetrationConfig.isEnabled() || guard.mightContain(id);
+    }
+
+    /**
+     * 新增数据后加入布隆过滤器并通知其它节点，需在数据库插入成功后调用
+     *
+     * @param cacheName cacheName
+     * @param id        id，与缓存的key一致
+     */
+    public void add(String cacheName, Object id) {
+        addAll(cacheName, Collections.singletonList(id));
+    }
+
+    /**
+     * 批量加入布隆过滤器，只发送一次通知
+     *
+     * @param cacheName cacheName
+     * @param ids       id，与缓存的key一致
+     */
+    public void addAll(String cacheName, Collection<?> ids) {
+
+        BloomFilterGuard guard = guards.get(cacheName);
+
+        if (guard == null || ids.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder(cacheName);
+
+        for (Object id : ids) {
+            guard.add(id);
+            message.append(SEPARATOR).append(id);
+        }
+
+        try {
+            stringRedisTemplate.convertAndSend(CacheNames.BLOOM_FILTER_ADD_CHANNEL, message.toString());
+        } catch (Exception e) {
+            // 通知失败时其它节点在下次重建后才能查询到该数据
+            log.error("publish bloom filter add error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时重建，启动后立即执行一次，在独立线程中执行，避免阻塞其它定时任务
+     */
+    @Scheduled(fixedDelayString = "${cache.penetration.rebuild-interval:3600000}")
+    public void scheduleRebuild() {
+
+        if (guards.isEmpty() || !cachePenetrationConfig.isEnabled() || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        rebuildExecutor.execute(() -> {
+            try {
+                adapters.forEach(this::rebuild);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    private void rebuild(String cacheName, CacheBloomFilterAdapter adapter) {
+
+        BloomFilterGuard guard = guards.get(cacheName);
+        int batchSize = cachePenetrationConfig.getRebuildBatchSize();
+
+        // 数据量超过预计时按上次的数量扩容，保持误判率
+        long expectedInsertions = Math.max(adapter.getExpectedInsertions(), guard.getInsertions() * 2);
+        BloomFilter filter = new BloomFilter(expectedInsertions, adapter.getFalsePositiveProbability());
+
+        guard.startRebuild(filter);
+
+        try {
+            Object lastId = null;
+            List<?> ids;
+
+            do {
+                ids = adapter.listIds(lastId, batchSize);
+
+                for (Object id : ids) {
+                    filter.put(String.valueOf(id));
+                }
+
+                lastId = ids.isEmpty() ? lastId : ids.get(ids.size() - 1);
+            } while (ids.size() >= batchSize);
+
+            guard.finishRebuild();
+            log.info("bloom filter rebuilt, cacheName: {}, insertions: {}", cacheName, filter.getInsertions());
+        } catch (Exception e) {
+            // 重建失败时继续使用原过滤器
+            guard.abortRebuild();
+            log.error("bloom filter rebuild error, cacheName: {}", cacheName, e);
+        }
+    }
+
+    private void onAdd(Message message) {
+
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARATOR);
+
+        BloomFilterGuard guard = guards.get(parts[0]);
+
+        if (guard == null) {
+            return;
+        }
+
+        for (int i = 1; i < parts.length; i++) {
+            guard.add(parts[i]);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+}
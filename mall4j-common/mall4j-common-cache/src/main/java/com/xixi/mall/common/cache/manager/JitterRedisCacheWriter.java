@@ -0,0 +1,91 @@
+package com.xixi.mall.common.cache.manager;
+
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 写入时随机缩短过期时间，同时写入的缓存不会在同一时刻过期
+ * RedisCacheConfiguration 只能配置固定的过期时间，因此在写入时处理
+ */
+public class JitterRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+
+    private final double jitter;
+
+    /**
+     * @param delegate 实际的写入
+     * @param jitter   随机缩短比例，0 ~ 1
+     */
+    public JitterRedisCacheWriter(RedisCacheWriter delegate, double jitter) {
+        this.delegate = delegate;
+        this.jitter = Math.max(0, Math.min(jitter, 1));
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, @Nullable Duration ttl) {
+        delegate.put(name, key, value, jitter(ttl, jitter));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return delegate.get(name, key);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, @Nullable Duration ttl) {
+        return delegate.putIfAbsent(name, key, value, jitter(ttl, jitter));
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new JitterRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector), jitter);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    /**
+     * 随机缩短过期时间，CacheManagerUtil 批量写入时也使用该方法
+     *
+     * @param ttl    过期时间
+     * @param jitter 随机缩短比例，0 ~ 1
+     * @return 缩短后的过期时间
+     */
+    public static Duration jitter(@Nullable Duration ttl, double jitter) {
+
+        double ratio = Math.max(0, Math.min(jitter, 1));
+
+        if (ttl == null || ttl.isZero() || ttl.isNegative() || ratio == 0) {
+            return ttl;
+        }
+
+        long millis = ttl.toMillis();
+        long reduce = (long) (millis * ratio * ThreadLocalRandom.current().nextDouble());
+
+        return Duration.ofMillis(Math.max(millis - reduce, 1));
+    }
+
+}
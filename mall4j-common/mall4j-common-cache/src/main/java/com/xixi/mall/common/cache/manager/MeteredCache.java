@@ -0,0 +1,128 @@
+package com.xixi.mall.common.cache.manager;
+
+import com.xixi.mall.common.cache.utils.CacheMeterUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 统计缓存的命中、写入、删除次数及加载耗时，在缓存的最外层，统计结果即为调用方看到的结果
+ * get(key, valueLoader) 中 valueLoader 未被调用即为命中，等待其它线程加载的结果也算作命中
+ */
+public class MeteredCache implements Cache {
+
+    private final Cache delegate;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter putCounter;
+
+    private final Counter evictionCounter;
+
+    private final Timer loadSuccessTimer;
+
+    private final Timer loadFailureTimer;
+
+    public MeteredCache(Cache delegate) {
+
+        String name = delegate.getName();
+
+        this.delegate = delegate;
+        this.hitCounter = CacheMeterUtil.hitCounter(name, CacheMeterUtil.LEVEL_ALL);
+        this.missCounter = CacheMeterUtil.missCounter(name, CacheMeterUtil.LEVEL_ALL);
+        this.putCounter = CacheMeterUtil.putCounter(name, CacheMeterUtil.LEVEL_ALL);
+        this.evictionCounter = CacheMeterUtil.evictionCounter(name, CacheMeterUtil.LEVEL_ALL);
+        this.loadSuccessTimer = CacheMeterUtil.loaderTimer(name, true);
+        this.loadFailureTimer = CacheMeterUtil.loaderTimer(name, false);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+
+        ValueWrapper valueWrapper = delegate.get(key);
+        (valueWrapper == null ? missCounter : hitCounter).increment();
+
+        return valueWrapper;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+
+        T value = delegate.get(key, type);
+        (value == null ? missCounter : hitCounter).increment();
+
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+
+        AtomicBoolean loaded = new AtomicBoolean();
+
+        try {
+            return delegate.get(key, () -> {
+
+                loaded.set(true);
+                long start = System.nanoTime();
+
+                try {
+                    T value = valueLoader.call();
+                    loadSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return value;
+                } catch (Exception e) {
+                    loadFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    throw e;
+                }
+            });
+        } finally {
+            (loaded.get() ? missCounter : hitCounter).increment();
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+        putCounter.increment();
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+
+        if (existing == null) {
+            putCounter.increment();
+        }
+
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        evictionCounter.increment();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        evictionCounter.increment();
+    }
+
+}
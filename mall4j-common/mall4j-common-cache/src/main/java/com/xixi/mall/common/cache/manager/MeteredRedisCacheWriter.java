@@ -0,0 +1,126 @@
+package com.xixi.mall.common.cache.manager;
+
+import com.xixi.mall.common.cache.utils.CacheMeterUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 统计redis缓存的读写次数及序列化后的大小，本地缓存命中时不会读redis
+ */
+public class MeteredRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+
+    /**
+     * cacheName -> 指标
+     */
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public MeteredRedisCacheWriter(RedisCacheWriter delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, @Nullable Duration ttl) {
+
+        delegate.put(name, key, value, ttl);
+
+        Meters cacheMeters = getMeters(name);
+        cacheMeters.putCounter.increment();
+        cacheMeters.putSize.record(value.length);
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+
+        byte[] value = delegate.get(name, key);
+        Meters cacheMeters = getMeters(name);
+
+        if (value == null) {
+            cacheMeters.missCounter.increment();
+        } else {
+            cacheMeters.hitCounter.increment();
+            cacheMeters.getSize.record(value.length);
+        }
+
+        return value;
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, @Nullable Duration ttl) {
+
+        byte[] existing = delegate.putIfAbsent(name, key, value, ttl);
+
+        if (existing == null) {
+            Meters cacheMeters = getMeters(name);
+            cacheMeters.putCounter.increment();
+            cacheMeters.putSize.record(value.length);
+        }
+
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+        getMeters(name).evictionCounter.increment();
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+        getMeters(name).evictionCounter.increment();
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new MeteredRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector));
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    private Meters getMeters(String name) {
+        return meters.computeIfAbsent(name, Meters::new);
+    }
+
+    private static class Meters {
+
+        private final Counter hitCounter;
+
+        private final Counter missCounter;
+
+        private final Counter putCounter;
+
+        private final Counter evictionCounter;
+
+        private final DistributionSummary getSize;
+
+        private final DistributionSummary putSize;
+
+        private Meters(String name) {
+            this.hitCounter = CacheMeterUtil.hitCounter(name, CacheMeterUtil.LEVEL_REDIS);
+            this.missCounter = CacheMeterUtil.missCounter(name, CacheMeterUtil.LEVEL_REDIS);
+            this.putCounter = CacheMeterUtil.putCounter(name, CacheMeterUtil.LEVEL_REDIS);
+            this.evictionCounter = CacheMeterUtil.evictionCounter(name, CacheMeterUtil.LEVEL_REDIS);
+            this.getSize = CacheMeterUtil.payloadSummary(name, "get");
+            this.putSize = CacheMeterUtil.payloadSummary(name, "put");
+        }
+    }
+
+}
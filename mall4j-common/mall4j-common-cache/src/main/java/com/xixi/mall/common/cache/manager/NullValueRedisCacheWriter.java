@@ -0,0 +1,108 @@
+package com.xixi.mall.common.cache.manager;
+
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 空值使用较短的过期时间，避免新增的数据在缓存过期前一直查询为空
+ * RedisCache 将空值序列化为jdk序列化的 NullValue，与值的序列化方式无关，同时兼容值序列化器序列化的 NullValue
+ */
+public class NullValueRedisCacheWriter implements RedisCacheWriter {
+
+    /**
+     * RedisCache 中空值的序列化结果
+     */
+    public static final byte[] BINARY_NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+
+    private final RedisCacheWriter delegate;
+
+    private final Duration nullValueTtl;
+
+    private final byte[] serializedNullValue;
+
+    /**
+     * @param delegate        实际的写入
+     * @param nullValueTtl    空值的过期时间，为空时不处理
+     * @param valueSerializer 值的序列化器
+     */
+    public NullValueRedisCacheWriter(RedisCacheWriter delegate,
+                                     @Nullable Duration nullValueTtl,
+                                     RedisSerializer<Object> valueSerializer) {
+        this(delegate, nullValueTtl, valueSerializer.serialize(NullValue.INSTANCE));
+    }
+
+    private NullValueRedisCacheWriter(RedisCacheWriter delegate,
+                                      @Nullable Duration nullValueTtl,
+                                      byte[] serializedNullValue) {
+        this.delegate = delegate;
+        this.nullValueTtl = nullValueTtl;
+        this.serializedNullValue = serializedNullValue;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, @Nullable Duration ttl) {
+        delegate.put(name, key, value, ttlOf(value, ttl));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return delegate.get(name, key);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, @Nullable Duration ttl) {
+        return delegate.putIfAbsent(name, key, value, ttlOf(value, ttl));
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new NullValueRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector),
+                nullValueTtl, serializedNullValue);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    private Duration ttlOf(byte[] value, @Nullable Duration ttl) {
+
+        if (nullValueTtl == null || !isNullValue(value)) {
+            return ttl;
+        }
+
+        // 缓存不过期或过期时间更长时使用空值的过期时间
+        if (ttl == null || ttl.isZero() || ttl.isNegative() || ttl.compareTo(nullValueTtl) > 0) {
+            return nullValueTtl;
+        }
+
+        return ttl;
+    }
+
+    private boolean isNullValue(byte[] value) {
+        return Arrays.equals(value, BINARY_NULL_VALUE) || Arrays.equals(value, serializedNullValue);
+    }
+
+}
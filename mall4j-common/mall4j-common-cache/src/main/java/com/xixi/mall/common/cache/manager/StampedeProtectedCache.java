@@ -0,0 +1,315 @@
+package com.xixi.mall.common.cache.manager;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xixi.mall.common.cache.config.CacheProtectConfig;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.integration.redis.util.RedisLockRegistry;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 缓存击穿保护
+ * get(key, valueLoader) 未命中时同一个key在本节点只有一个线程加载，其它线程等待其结果，开启分布式锁时集群内只有一个节点加载；
+ * 命中时按 XFetch 算法：当前时间 - 加载耗时 * beta * ln(random) >= 过期时间 时由命中的线程同步重新加载，其它线程仍返回旧值，
+ * 加载方法来自 @Cacheable，可能依赖请求及事务的线程上下文，因此不在其它线程中执行；
+ * 只有本节点加载过的key才知道加载耗时与过期时间，由加载该key的节点提前重新加载；
+ * 加载方法中再次读取同一个key时直接加载，不等待自己
+ */
+@Slf4j
+public class StampedeProtectedCache implements Cache {
+
+    private static final long LOAD_INFO_MAXIMUM_SIZE = 10000;
+
+    private final Cache delegate;
+
+    /**
+     * 缓存的过期时间，未知或不过期时为空，不提前加载
+     */
+    private final Duration ttl;
+
+    private final CacheProtectConfig config;
+
+    /**
+     * 未开启分布式锁时为空
+     */
+    private final RedisLockRegistry lockRegistry;
+
+    /**
+     * key -> 正在进行的加载
+     */
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loadings = new ConcurrentHashMap<>();
+
+    /**
+     * key -> 本节点加载时记录的加载耗时与过期时间
+     */
+    private final com.github.benmanes.caffeine.cache.Cache<Object, LoadInfo> loadInfos;
+
+    /**
+     * 当前线程正在加载的key
+     */
+    private final ThreadLocal<Set<Object>> loadingKeys = ThreadLocal.withInitial(HashSet::new);
+
+    public StampedeProtectedCache(Cache delegate,
+                                  @Nullable Duration ttl,
+                                  CacheProtectConfig config,
+                                  @Nullable RedisLockRegistry lockRegistry) {
+        this.delegate = delegate;
+        this.ttl = ttl == null || ttl.isZero() || ttl.isNegative() ? null : ttl;
+        this.config = config;
+        this.lockRegistry = lockRegistry;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(LOAD_INFO_MAXIMUM_SIZE);
+
+        if (this.ttl != null) {
+            builder.expireAfterWrite(this.ttl);
+        }
+
+        this.loadInfos = builder.build();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+
+        ValueWrapper valueWrapper = delegate.get(key);
+
+        if (valueWrapper != null) {
+            return shouldRefreshEarly(key)
+                    ? (T) refresh(key, valueLoader, valueWrapper.get())
+                    : (T) valueWrapper.get();
+        }
+
+        // 加载方法中读取同一个key，等待的是自己的加载，直接加载
+        if (loadingKeys.get().contains(key)) {
+            return (T) load(key, valueLoader);
+        }
+
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loadings.putIfAbsent(key, loading);
+
+        // 已有线程在加载，等待其结果
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof ValueRetrievalException
+                        ? (ValueRetrievalException) e.getCause()
+                        : new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+
+        loadingKeys.get().add(key);
+
+        try {
+            Object value = loadWithLock(key, valueLoader);
+            loading.complete(value);
+            return (T) value;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingKeys.get().remove(key);
+            loadings.remove(key, loading);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        loadInfos.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        loadInfos.invalidateAll();
+    }
+
+    private Object loadWithLock(Object key, Callable<?> valueLoader) {
+
+        Lock lock = obtainLock(key);
+
+        if (lock == null) {
+            return load(key, valueLoader);
+        }
+
+        boolean locked = false;
+
+        try {
+            locked = lock.tryLock(config.getLockWaitTime(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            // 等待期间其它节点可能已经加载完成
+            ValueWrapper valueWrapper = delegate.get(key);
+
+            if (valueWrapper != null) {
+                return valueWrapper.get();
+            }
+
+            return load(key, valueLoader);
+        } finally {
+            if (locked) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader) {
+
+        long start = System.currentTimeMillis();
+        Object value;
+
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+
+        long now = System.currentTimeMillis();
+
+        delegate.put(key, value);
+
+        // 写入redis时过期时间会被随机缩短，按最短的过期时间计算
+        if (ttl != null) {
+            long minTtl = (long) (ttl.toMillis() * (1 - Math.max(0, Math.min(config.getTtlJitter(), 1))));
+            loadInfos.put(key, new LoadInfo(now - start, now + minTtl));
+        }
+
+        return value;
+    }
+
+    private boolean shouldRefreshEarly(Object key) {
+
+        if (!config.isEarlyRefreshEnabled() || ttl == null) {
+            return false;
+        }
+
+        LoadInfo loadInfo = loadInfos.getIfPresent(key);
+
+        if (loadInfo == null) {
+            return false;
+        }
+
+        double gap = -loadInfo.delta * config.getEarlyRefreshBeta() * Math.log(ThreadLocalRandom.current().nextDouble());
+
+        if (System.currentTimeMillis() + gap < loadInfo.expiresAt || loadings.containsKey(key)) {
+            return false;
+        }
+
+        // 只触发一次，重新加载成功后会重新记录
+        loadInfos.invalidate(key);
+
+        return true;
+    }
+
+    /**
+     * 在当前线程提前重新加载，其它线程或节点正在加载、加载失败时返回旧值
+     *
+     * @param key         key
+     * @param valueLoader 加载方法
+     * @param current     缓存中的旧值
+     * @return 重新加载的值
+     */
+    private Object refresh(Object key, Callable<?> valueLoader, Object current) {
+
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+
+        if (loadings.putIfAbsent(key, loading) != null) {
+            return current;
+        }
+
+        loadingKeys.get().add(key);
+        Lock lock = obtainLock(key);
+
+        try {
+            // 其它节点正在加载时放弃，缓存已被删除时仍需加载，本节点可能有线程在等待结果
+            if (lock != null && !lock.tryLock()) {
+
+                lock = null;
+                ValueWrapper valueWrapper = delegate.get(key);
+
+                if (valueWrapper != null) {
+                    loading.complete(valueWrapper.get());
+                    return current;
+                }
+            }
+
+            Object value = load(key, valueLoader);
+            loading.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            log.error("cache early refresh error, cacheName: {}, key: {}", getName(), key, e);
+            return current;
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+            loadingKeys.get().remove(key);
+            loadings.remove(key, loading);
+        }
+    }
+
+    private Lock obtainLock(Object key) {
+        return lockRegistry == null ? null : lockRegistry.obtain(getName() + CacheNames.UNION + key);
+    }
+
+    private static class LoadInfo {
+
+        /**
+         * 加载耗时，以毫秒为单位
+         */
+        private final long delta;
+
+        /**
+         * 过期时间戳
+         */
+        private final long expiresAt;
+
+        private LoadInfo(long delta, long expiresAt) {
+            this.delta = delta;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.xixi.mall.common.cache.manager;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 两级缓存，本地缓存在前，redis缓存在后
+ * 读取时先读本地缓存，未命中再读redis并写入本地缓存；写入及删除时先操作redis再移除本地缓存，并通知其它节点移除
+ * 本地缓存中的对象会被多次返回，调用方不能修改缓存中的对象
+ * 空值只保存在redis中，使用空值的过期时间，不写入本地缓存
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+
+    private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> localCache;
+
+    private final Cache redisCache;
+
+    private final TwoLevelCacheManager cacheManager;
+
+    /**
+     * 本地缓存的失效序号，每次移除本地缓存前自增
+     * 读取redis期间序号变化时不写入本地缓存，避免读到的旧值覆盖期间发生的失效
+     */
+    private final AtomicLong evictSequence = new AtomicLong();
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> localCache,
+                         Cache redisCache,
+                         TwoLevelCacheManager cacheManager) {
+        this.name = name;
+        this.localCache = localCache;
+        this.redisCache = redisCache;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+
+        String localKey = toLocalKey(key);
+        ValueWrapper valueWrapper = localCache.getIfPresent(localKey);
+
+        if (valueWrapper != null) {
+            return valueWrapper;
+        }
+
+        long sequence = evictSequence.get();
+        valueWrapper = redisCache.get(key);
+
+        if (valueWrapper != null) {
+            putLocal(localKey, valueWrapper.get(), sequence);
+        }
+
+        return valueWrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+
+        ValueWrapper valueWrapper = get(key);
+        Object value = valueWrapper == null ? null : valueWrapper.get();
+
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+
+        String localKey = toLocalKey(key);
+        ValueWrapper valueWrapper = localCache.getIfPresent(localKey);
+
+        if (valueWrapper != null) {
+            return (T) valueWrapper.get();
+        }
+
+        long sequence = evictSequence.get();
+        T value = redisCache.get(key, valueLoader);
+        putLocal(localKey, value, sequence);
+
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redisCache.put(key, value);
+        evictLocal(key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = redisCache.putIfAbsent(key, value);
+        evictLocal(key);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        evictLocal(key);
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        evictSequence.incrementAndGet();
+        localCache.invalidateAll();
+        cacheManager.publishEvict(name, null);
+    }
+
+    /**
+     * 收到其它节点的失效通知
+     *
+     * @param localKey 本地缓存key，为空时清空本地缓存
+     */
+    void onEvict(String localKey) {
+        evictSequence.incrementAndGet();
+        if (localKey == null) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(localKey);
+        }
+    }
+
+    /**
+     * 写入时不直接放入本地缓存，下次读取时从redis加载，避免与其它节点的写入交错后本地缓存停留在旧值
+     */
+    private void evictLocal(Object key) {
+        String localKey = toLocalKey(key);
+        evictSequence.incrementAndGet();
+        localCache.invalidate(localKey);
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    /**
+     * 从redis读取后写入本地缓存
+     * 在同一个key上与移除互斥：移除先自增序号再移除，写入时序号已变化则放弃，写入在移除之前则随后被移除
+     *
+     * @param localKey 本地缓存key
+     * @param value    redis中的值，为空时不写入
+     * @param sequence 读取redis之前的失效序号
+     */
+    private void putLocal(String localKey, Object value, long sequence) {
+
+        if (value == null) {
+            return;
+        }
+
+        localCache.asMap().compute(localKey, (k, current) ->
+                evictSequence.get() == sequence ? new SimpleValueWrapper(value) : current);
+    }
+
+    /**
+     * 与redis的key一致使用字符串，其它节点的失效通知只能携带字符串
+     */
+    static String toLocalKey(Object key) {
+        return String.valueOf(key);
+    }
+
+}
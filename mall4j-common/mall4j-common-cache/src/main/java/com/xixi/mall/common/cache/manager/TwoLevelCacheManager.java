@@ -0,0 +1,248 @@
+package com.xixi.mall.common.cache.manager;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xixi.mall.common.cache.bo.CacheNameWithTtlBo;
+import com.xixi.mall.common.cache.config.CacheProtectConfig;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.cache.utils.CacheMeterUtil;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.integration.redis.util.RedisLockRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存管理
+ * 在 CacheTtlAdapter 中配置了本地缓存大小的cacheName使用 本地缓存 + redis 两级缓存，其它cacheName只使用redis；
+ * 两级缓存写入或删除后通过redis发布订阅通知其它节点移除本地缓存，消息为 节点id\ncacheName\nkey1\nkey2...，没有key时表示清空；
+ * 开启击穿保护时所有缓存外增加 StampedeProtectedCache，配置了布隆过滤器的缓存再增加 BloomFilterGuardCache，
+ * 最外层为统计命中及加载耗时的 MeteredCache
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private static final String SEPARATOR = "\n";
+
+    /**
+     * 本节点id，忽略本节点发出的通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final CacheManager redisCacheManager;
+
+    private final Map<String, CacheNameWithTtlBo> localCacheConfigs;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本节点已经创建的两级缓存，事务感知时对外返回的是装饰后的缓存
+     */
+    private final Map<String, TwoLevelCache> twoLevelCaches = new ConcurrentHashMap<>();
+
+    private final CacheProtectConfig cacheProtectConfig;
+
+    /**
+     * 未开启分布式锁时为空
+     */
+    private final RedisLockRegistry lockRegistry;
+
+    private final CacheBloomFilterManager bloomFilterManager;
+
+    /**
+     * @param redisCacheManager     redis缓存管理，不能开启事务感知，由本类统一处理
+     * @param localCacheConfigs     cacheName -> 本地缓存配置
+     * @param stringRedisTemplate   用于发送失效通知
+     * @param listenerContainer     用于接收失效通知
+     * @param cacheProtectConfig    击穿保护配置
+     * @param lockRegistry          分布式锁
+     * @param bloomFilterManager    布隆过滤器管理
+     */
+    public TwoLevelCacheManager(CacheManager redisCacheManager,
+                                Map<String, CacheNameWithTtlBo> localCacheConfigs,
+                                StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                CacheProtectConfig cacheProtectConfig,
+                                RedisLockRegistry lockRegistry,
+                                CacheBloomFilterManager bloomFilterManager) {
+
+        this.redisCacheManager = redisCacheManager;
+        this.localCacheConfigs = localCacheConfigs;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheProtectConfig = cacheProtectConfig;
+        this.lockRegistry = cacheProtectConfig.isDistributedLockEnabled() ? lockRegistry : null;
+        this.bloomFilterManager = bloomFilterManager;
+
+        if (!localCacheConfigs.isEmpty()) {
+            listenerContainer.addMessageListener((message, pattern) -> onEvict(message),
+                    new ChannelTopic(CacheNames.LOCAL_CACHE_EVICT_CHANNEL));
+        }
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+
+        Cache redisCache = redisCacheManager.getCache(name);
+
+        if (redisCache == null) {
+            return null;
+        }
+
+        Cache cache = redisCache;
+        CacheNameWithTtlBo config = localCacheConfigs.get(name);
+
+        if (config != null) {
+            cache = createTwoLevelCache(name, config, redisCache);
+        }
+
+        if (cacheProtectConfig.isEnabled()) {
+            cache = new StampedeProtectedCache(cache, getTtl(name), cacheProtectConfig, lockRegistry);
+        }
+
+        // 一定不存在的key在加载保护之前拦截
+        return new MeteredCache(bloomFilterManager.guard(cache));
+    }
+
+    private TwoLevelCache createTwoLevelCache(String name, CacheNameWithTtlBo config, Cache redisCache) {
+
+        Integer localTtl = config.getLocalTtl() == null ? config.getTtl() : config.getLocalTtl();
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(config.getLocalMaximumSize())
+                .recordStats();
+
+        if (localTtl != null && localTtl > 0) {
+            builder.expireAfterWrite(localTtl, TimeUnit.SECONDS);
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> localCache = builder.build();
+        CaffeineCacheMetrics.monitor(CacheMeterUtil.registry(), localCache, name,
+                "level", CacheMeterUtil.LEVEL_LOCAL);
+
+        TwoLevelCache cache = new TwoLevelCache(name, localCache, redisCache, this);
+        twoLevelCaches.put(name, cache);
+
+        return cache;
+    }
+
+    /**
+     * 获取缓存在redis中的过期时间
+     *
+     * @param name cacheName
+     * @return 过期时间，未知时为空
+     */
+    public Duration getTtl(String name) {
+
+        Cache redisCache = redisCacheManager.getCache(name);
+
+        return redisCache instanceof RedisCache
+                ? ((RedisCache) redisCache).getCacheConfiguration().getTtl()
+                : null;
+    }
+
+    /**
+     * 直接写入redis后移除本节点及其它节点的本地缓存，本节点尚未创建该缓存时也需通知其它节点
+     *
+     * @param name cacheName
+     * @param keys 写入的key
+     */
+    public void evictLocal(String name, Collection<?> keys) {
+
+        if (!localCacheConfigs.containsKey(name)) {
+            return;
+        }
+
+        TwoLevelCache cache = twoLevelCaches.get(name);
+        List<String> localKeys = new ArrayList<>(keys.size());
+
+        for (Object key : keys) {
+
+            String localKey = TwoLevelCache.toLocalKey(key);
+
+            if (cache != null) {
+                cache.onEvict(localKey);
+            }
+
+            localKeys.add(localKey);
+        }
+
+        // 一次通知移除全部key
+        publishEvict(name, String.join(SEPARATOR, localKeys));
+    }
+
+    /**
+     * 通知其它节点移除本地缓存
+     *
+     * @param cacheName cacheName
+     * @param localKey  本地缓存key，多个key以换行分隔，为空时清空
+     */
+    void publishEvict(String cacheName, String localKey) {
+
+        String message = nodeId + SEPARATOR + cacheName + (localKey == null ? "" : SEPARATOR + localKey);
+
+        try {
+            stringRedisTemplate.convertAndSend(CacheNames.LOCAL_CACHE_EVICT_CHANNEL, message);
+        } catch (Exception e) {
+            // 通知失败时其它节点的本地缓存到期后失效
+            log.error("publish local cache evict error: {}", e.getMessage());
+        }
+    }
+
+    private void onEvict(Message message) {
+
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARATOR);
+
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        // 只处理本节点已经创建的两级缓存
+        TwoLevelCache cache = twoLevelCaches.get(parts[1]);
+
+        if (cache == null) {
+            return;
+        }
+
+        if (parts.length == 2) {
+            cache.onEvict(null);
+            return;
+        }
+
+        for (int i = 2; i < parts.length; i++) {
+            cache.onEvict(parts[i]);
+        }
+    }
+
+    /**
+     * RedisLockRegistry 在本地为每个key保存一个锁对象，定时移除长时间未使用的锁
+     */
+    @Scheduled(fixedDelayString = "${cache.protect.lock-expire-interval:60000}")
+    public void expireUnusedLocks() {
+        if (lockRegistry != null) {
+            lockRegistry.expireUnusedOlderThan(cacheProtectConfig.getLockExpireInterval());
+        }
+    }
+
+}
@@ -1,18 +1,53 @@
 package com.xixi.mall.common.cache.utils;
 
+import cn.hutool.core.collection.CollUtil;
+import com.xixi.mall.common.cache.bo.MultiGetResultBo;
+import com.xixi.mall.common.cache.config.CachePenetrationConfig;
+import com.xixi.mall.common.cache.config.CacheProtectConfig;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.cache.manager.CacheBloomFilterManager;
+import com.xixi.mall.common.cache.manager.JitterRedisCacheWriter;
+import com.xixi.mall.common.cache.manager.TwoLevelCacheManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 public class CacheManagerUtil {
 
     private final CacheManager cacheManager;
 
+    private final CacheProtectConfig cacheProtectConfig;
+
+    private final CachePenetrationConfig cachePenetrationConfig;
+
+    private final CacheBloomFilterManager cacheBloomFilterManager;
+
     @Autowired
-    public CacheManagerUtil(CacheManager cacheManager) {
+    public CacheManagerUtil(CacheManager cacheManager,
+                            CacheProtectConfig cacheProtectConfig,
+                            CachePenetrationConfig cachePenetrationConfig,
+                            CacheBloomFilterManager cacheBloomFilterManager) {
         this.cacheManager = cacheManager;
+        this.cacheProtectConfig = cacheProtectConfig;
+        this.cachePenetrationConfig = cachePenetrationConfig;
+        this.cacheBloomFilterManager = cacheBloomFilterManager;
     }
 
     @SuppressWarnings({"unchecked"})
@@ -28,6 +63,53 @@ public class CacheManagerUtil {
         return (T) valueWrapper.get();
     }
 
+    /**
+     * 批量获取 @Cacheable 的缓存，直接读redis，一次往返
+     * 布隆过滤器判断一定不存在的key作为命中返回null
+     *
+     * @param cacheName 缓存名
+     * @param keys      缓存key
+     * @return 命中的值及未命中的key，未命中的key可以通过一次 IN 查询加载后调用 putAll 写回
+     */
+    public <K, T> MultiGetResultBo<K, T> getAll(String cacheName, Collection<K> keys) {
+
+        MultiGetResultBo<K, T> result = new MultiGetResultBo<>();
+
+        if (CollUtil.isEmpty(keys)) {
+            return result;
+        }
+
+        Set<K> distinctKeys = new LinkedHashSet<>(keys);
+        Set<K> rejectedKeys = new HashSet<>();
+        List<K> lookupKeys = new ArrayList<>(distinctKeys.size());
+
+        for (K key : distinctKeys) {
+            if (cacheBloomFilterManager.mightContain(cacheName, key)) {
+                lookupKeys.add(key);
+            } else {
+                rejectedKeys.add(key);
+            }
+        }
+
+        MultiGetResultBo<K, T> redisResult = RedisUtil.getAll(lookupKeys, key -> toRedisKey(cacheName, key));
+
+        // 命中的顺序与查询时一致，布隆过滤器拦截的key作为空值命中
+        for (K key : distinctKeys) {
+            if (rejectedKeys.contains(key)) {
+                result.getHits().put(key, null);
+            } else if (redisResult.getHits().containsKey(key)) {
+                result.getHits().put(key, redisResult.getHits().get(key));
+            }
+        }
+
+        result.getMissingKeys().addAll(redisResult.getMissingKeys());
+
+        CacheMeterUtil.hitCounter(cacheName, CacheMeterUtil.LEVEL_ALL).increment(result.getHits().size());
+        CacheMeterUtil.missCounter(cacheName, CacheMeterUtil.LEVEL_ALL).increment(result.getMissingKeys().size());
+
+        return result;
+    }
+
     public void putCache(String cacheName, String key, Object value) {
         Cache cache = cacheManager.getCache(cacheName);
         if (cache != null) {
@@ -35,6 +117,80 @@ public class CacheManagerUtil {
         }
     }
 
+    /**
+     * 批量写入 @Cacheable 的缓存，一次往返，过期时间与该缓存的配置一致，同样随机缩短，空值使用空值的过期时间
+     * 写入后移除各节点的本地缓存，非空值的key加入布隆过滤器；与 @Cacheable 一致，事务中调用时在事务提交后写入
+     *
+     * @param cacheName 缓存名
+     * @param values    缓存key -> 值
+     */
+    public <K> void putAll(String cacheName, Map<K, ?> values) {
+
+        if (CollUtil.isEmpty(values)) {
+            return;
+        }
+
+        if (cacheManager instanceof AbstractTransactionSupportingCacheManager
+                && ((AbstractTransactionSupportingCacheManager) cacheManager).isTransactionAware()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+
+            Map<K, ?> copy = new LinkedHashMap<>(values);
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doPutAll(cacheName, copy);
+                }
+            });
+            return;
+        }
+
+        doPutAll(cacheName, values);
+    }
+
+    private <K> void doPutAll(String cacheName, Map<K, ?> values) {
+
+        // 不是本项目的缓存管理时无法获取过期时间，逐个写入
+        if (!(cacheManager instanceof TwoLevelCacheManager)) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                values.forEach(cache::put);
+            }
+            return;
+        }
+
+        TwoLevelCacheManager twoLevelCacheManager = (TwoLevelCacheManager) cacheManager;
+        Duration ttl = twoLevelCacheManager.getTtl(cacheName);
+        Duration nullValueTtl = cachePenetrationConfig.getNullValueTtl() > 0
+                ? Duration.ofSeconds(cachePenetrationConfig.getNullValueTtl())
+                : null;
+
+        Map<String, Object> keyValues = new HashMap<>(values.size() * 4 / 3 + 1);
+        values.forEach((key, value) -> keyValues.put(toRedisKey(cacheName, key), value));
+
+        RedisUtil.setAll(keyValues, redisKey -> {
+
+            Duration entryTtl = ttl;
+
+            if (keyValues.get(redisKey) == null && nullValueTtl != null
+                    && (entryTtl == null || entryTtl.isZero() || entryTtl.compareTo(nullValueTtl) > 0)) {
+                entryTtl = nullValueTtl;
+            }
+
+            entryTtl = JitterRedisCacheWriter.jitter(entryTtl, cacheProtectConfig.getTtlJitter());
+
+            return entryTtl == null ? 0 : Math.max(entryTtl.getSeconds(), 1);
+        });
+
+        twoLevelCacheManager.evictLocal(cacheName, values.keySet());
+        cacheBloomFilterManager.addAll(cacheName, values.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue() != null)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
+        CacheMeterUtil.putCounter(cacheName, CacheMeterUtil.LEVEL_ALL).increment(values.size());
+    }
+
     public void evictCache(String cacheName, String key) {
         Cache cache = cacheManager.getCache(cacheName);
         if (cache != null) {
@@ -42,4 +198,11 @@ public class CacheManagerUtil {
         }
     }
 
+    /**
+     * 与 RedisCacheConfiguration 默认的key前缀一致：cacheName::key
+     */
+    private static String toRedisKey(String cacheName, Object key) {
+        return cacheName + CacheNames.UNION + key;
+    }
+
 }
@@ -0,0 +1,19 @@
+package com.xixi.mall.common.cache.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * 将应用的registry加入缓存指标的registry
+ * 引入actuator的服务由spring boot为每个registry调用一次，未引入时缓存指标不输出
+ */
+@Component
+public class CacheMeterBinder implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CacheMeterUtil.bindTo(registry);
+    }
+
+}
@@ -0,0 +1,269 @@
+package com.xixi.mall.common.cache.utils;
+
+import com.xixi.mall.common.cache.constant.CacheNames;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存指标
+ * 注册在本类的组合registry中，由 CacheMeterBinder 将应用的registry加入其中，
+ * 缓存管理在registry创建之前初始化，RedisUtil 为静态方法，都无法注入registry，加入之前的计数不会输出到其中
+ * 指标名与 micrometer 自带的缓存指标一致，以 cache 区分缓存名，以 level 区分统计的层级：
+ * all 为 @Cacheable 及 CacheManagerUtil 看到的结果，local 为本地缓存，redis 为缓存管理的redis读写，direct 为 RedisUtil 的直接读写
+ * 计数器按 层级 + 缓存名 创建一次后复用
+ */
+public final class CacheMeterUtil {
+
+    public static final String LEVEL_ALL = "all";
+
+    public static final String LEVEL_LOCAL = "local";
+
+    public static final String LEVEL_REDIS = "redis";
+
+    public static final String LEVEL_DIRECT = "direct";
+
+    private static final String GETS = "cache.gets";
+
+    private static final String PUTS = "cache.puts";
+
+    private static final String EVICTIONS = "cache.evictions";
+
+    private static final String LOADER = "cache.loader";
+
+    private static final String PAYLOAD_SIZE = "cache.payload.size";
+
+    private static final String REJECTIONS = "cache.bloom.rejections";
+
+    private static final String TAG_CACHE = "cache";
+
+    private static final String TAG_LEVEL = "level";
+
+    private static final double PAYLOAD_MAXIMUM_EXPECTED_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * 不属于任何已登记缓存名的key
+     */
+    private static final String OTHER = "other";
+
+    private static final CompositeMeterRegistry REGISTRY = new CompositeMeterRegistry();
+
+    /**
+     * 层级 -> 缓存名 -> 计数器
+     */
+    private static final Map<String, Map<String, CacheCounters>> COUNTERS = new ConcurrentHashMap<>();
+
+    /**
+     * 已登记的缓存名，按长度倒序，取最长的前缀
+     */
+    private static volatile List<String> cacheNames = new ArrayList<>();
+
+    static {
+        registerCacheNames(listConstantCacheNames());
+    }
+
+    private CacheMeterUtil() {
+    }
+
+    public static MeterRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * 加入应用的registry，已创建的指标会同时注册到其中
+     *
+     * @param registry 应用的registry
+     */
+    static void bindTo(MeterRegistry registry) {
+        REGISTRY.add(registry);
+    }
+
+    /**
+     * 登记缓存名，RedisUtil 的key按登记的缓存名统计
+     *
+     * @param names 缓存名
+     */
+    public static synchronized void registerCacheNames(Collection<String> names) {
+
+        Set<String> merged = new LinkedHashSet<>(cacheNames);
+        merged.addAll(names);
+
+        List<String> sorted = new ArrayList<>(merged);
+        sorted.sort(Comparator.comparingInt(String::length).reversed());
+
+        cacheNames = sorted;
+    }
+
+    public static Counter hitCounter(String cacheName, String level) {
+        return counters(cacheName, level).hit;
+    }
+
+    public static Counter missCounter(String cacheName, String level) {
+        return counters(cacheName, level).miss;
+    }
+
+    public static Counter putCounter(String cacheName, String level) {
+        return counters(cacheName, level).put;
+    }
+
+    public static Counter evictionCounter(String cacheName, String level) {
+        return counters(cacheName, level).eviction;
+    }
+
+    /**
+     * 布隆过滤器判断一定不存在而直接返回空的次数
+     *
+     * @param cacheName 缓存名
+     * @return 次数
+     */
+    public static Counter rejectionCounter(String cacheName) {
+        return Counter.builder(REJECTIONS)
+                .tag(TAG_CACHE, cacheName)
+                .tag(TAG_LEVEL, LEVEL_ALL)
+                .description("The number of lookups rejected by the bloom filter")
+                .register(registry());
+    }
+
+    /**
+     * 缓存未命中时加载数据的耗时，只有 get(key, valueLoader) 可以统计
+     *
+     * @param cacheName 缓存名
+     * @param success   是否加载成功
+     * @return 耗时
+     */
+    public static Timer loaderTimer(String cacheName, boolean success) {
+        return Timer.builder(LOADER)
+                .tag(TAG_CACHE, cacheName)
+                .tag(TAG_LEVEL, LEVEL_ALL)
+                .tag("result", success ? "success" : "failure")
+                .description("The time taken to load a missing cache entry")
+                .register(registry());
+    }
+
+    /**
+     * 序列化后的大小分布，用于发现过大的缓存
+     *
+     * @param cacheName 缓存名
+     * @param operation get 或 put
+     * @return 大小分布
+     */
+    public static DistributionSummary payloadSummary(String cacheName, String operation) {
+        return DistributionSummary.builder(PAYLOAD_SIZE)
+                .tag(TAG_CACHE, cacheName)
+                .tag(TAG_LEVEL, LEVEL_REDIS)
+                .tag("operation", operation)
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(PAYLOAD_MAXIMUM_EXPECTED_SIZE)
+                .description("The serialized size of cache values")
+                .register(registry());
+    }
+
+    /**
+     * RedisUtil 的key没有缓存名，取已登记的缓存名中最长的前缀，都不匹配时为 other，指标数量不超过登记的缓存名数量
+     *
+     * @param key redis key
+     * @return 缓存名
+     */
+    public static String cacheNameOf(String key) {
+
+        for (String cacheName : cacheNames) {
+            if (key.startsWith(cacheName)) {
+                return cacheName;
+            }
+        }
+
+        return OTHER;
+    }
+
+    private static CacheCounters counters(String cacheName, String level) {
+
+        Map<String, CacheCounters> levelCounters = COUNTERS.get(level);
+
+        if (levelCounters == null) {
+            levelCounters = COUNTERS.computeIfAbsent(level, k -> new ConcurrentHashMap<>());
+        }
+
+        CacheCounters counters = levelCounters.get(cacheName);
+
+        return counters != null
+                ? counters
+                : levelCounters.computeIfAbsent(cacheName, name -> new CacheCounters(name, level));
+    }
+
+    /**
+     * CacheNames 中以 : 结尾的常量，即各服务的key前缀
+     */
+    private static List<String> listConstantCacheNames() {
+
+        List<String> names = new ArrayList<>();
+
+        for (Field field : CacheNames.class.getFields()) {
+
+            if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            try {
+                String name = (String) field.get(null);
+
+                if (name.length() > CacheNames.UNION.length() && name.endsWith(CacheNames.UNION_KEY)) {
+                    names.add(name);
+                }
+            } catch (IllegalAccessException e) {
+                // 接口常量都是public，不会发生
+            }
+        }
+
+        return names;
+    }
+
+    private static class CacheCounters {
+
+        private final Counter hit;
+
+        private final Counter miss;
+
+        private final Counter put;
+
+        private final Counter eviction;
+
+        private CacheCounters(String cacheName, String level) {
+            this.hit = getsCounter(cacheName, level, "hit");
+            this.miss = getsCounter(cacheName, level, "miss");
+            this.put = Counter.builder(PUTS)
+                    .tag(TAG_CACHE, cacheName)
+                    .tag(TAG_LEVEL, level)
+                    .description("The number of entries added to the cache")
+                    .register(REGISTRY);
+            this.eviction = Counter.builder(EVICTIONS)
+                    .tag(TAG_CACHE, cacheName)
+                    .tag(TAG_LEVEL, level)
+                    .description("The number of explicit cache evictions")
+                    .register(REGISTRY);
+        }
+
+        private static Counter getsCounter(String cacheName, String level, String result) {
+            return Counter.builder(GETS)
+                    .tag(TAG_CACHE, cacheName)
+                    .tag(TAG_LEVEL, level)
+                    .tag("result", result)
+                    .description("The number of times cache lookup methods have returned a cached (hit) or uncached (miss) value")
+                    .register(REGISTRY);
+        }
+    }
+
+}
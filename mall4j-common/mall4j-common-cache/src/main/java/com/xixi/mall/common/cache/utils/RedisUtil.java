@@ -2,20 +2,30 @@ package com.xixi.mall.common.cache.utils;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
+import com.xixi.mall.common.cache.bo.MultiGetResultBo;
 import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.cache.manager.NullValueRedisCacheWriter;
 import com.xixi.mall.common.core.enums.ResponseEnum;
 import com.xixi.mall.common.core.utils.SpringContextUtils;
 import com.xixi.mall.common.core.utils.ThrowUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
+import static com.xixi.mall.common.core.constant.Constant.VOID;
+
 /**
  * @author FrozenWatermelon
  * @date 2020/7/11
@@ -28,6 +38,10 @@ public class RedisUtil {
     private static final RedisTemplate<String, Object> REDIS_TEMPLATE = SpringContextUtils.getBean("redisTemplate",
             RedisTemplate.class);
 
+    @SuppressWarnings("unchecked")
+    private static final RedisSerializer<Object> VALUE_SERIALIZER =
+            (RedisSerializer<Object>) REDIS_TEMPLATE.getValueSerializer();
+
     public static final StringRedisTemplate STRING_REDIS_TEMPLATE = SpringContextUtils.getBean("stringRedisTemplate",
             StringRedisTemplate.class);
 
@@ -104,6 +118,10 @@ public class RedisUtil {
             } else {
                 REDIS_TEMPLATE.delete(Arrays.asList(key));
             }
+
+            for (String s : key) {
+                recordEviction(s);
+            }
         }
     }
 
@@ -120,7 +138,63 @@ public class RedisUtil {
         if (key.contains(StrUtil.SPACE)) {
             ThrowUtils.throwErr(ResponseEnum.EXCEPTION);
         }
-        return (T) REDIS_TEMPLATE.opsForValue().get(key);
+        T value = (T) REDIS_TEMPLATE.opsForValue().get(key);
+        recordGet(key, value != null);
+        return value;
+    }
+
+    /**
+     * 批量获取，一次往返，值的序列化方式与 @Cacheable 一致
+     *
+     * @param keys      业务key
+     * @param keyMapper 业务key -> redis key
+     * @return 命中的值及未命中的key，缓存的空值作为命中返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, T> MultiGetResultBo<K, T> getAll(Collection<K> keys, Function<K, String> keyMapper) {
+
+        MultiGetResultBo<K, T> result = new MultiGetResultBo<>();
+
+        if (CollUtil.isEmpty(keys)) {
+            return result;
+        }
+
+        List<K> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<String> redisKeys = new ArrayList<>(distinctKeys.size());
+
+        for (K key : distinctKeys) {
+            String redisKey = keyMapper.apply(key);
+            if (redisKey.contains(StrUtil.SPACE)) {
+                ThrowUtils.throwErr(ResponseEnum.EXCEPTION);
+            }
+            redisKeys.add(redisKey);
+        }
+
+        // 不指定结果的序列化器，返回原始的字节，空值的序列化方式与其它值不同
+        List<Object> rawValues = REDIS_TEMPLATE.executePipelined((RedisCallback<Void>) connection -> {
+            for (String redisKey : redisKeys) {
+                connection.get(redisKey.getBytes(StandardCharsets.UTF_8));
+            }
+            return VOID;
+        }, null);
+
+        for (int i = 0; i < distinctKeys.size(); i++) {
+
+            K key = distinctKeys.get(i);
+            byte[] rawValue = (byte[]) rawValues.get(i);
+            recordGet(redisKeys.get(i), rawValue != null);
+
+            if (rawValue == null) {
+                result.getMissingKeys().add(key);
+            } else if (Arrays.equals(rawValue, NullValueRedisCacheWriter.BINARY_NULL_VALUE)) {
+                result.getHits().put(key, null);
+            } else {
+                Object value = VALUE_SERIALIZER.deserialize(rawValue);
+                result.getHits().put(key, value instanceof NullValue ? null : (T) value);
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -141,6 +215,7 @@ public class RedisUtil {
             } else {
                 REDIS_TEMPLATE.opsForValue().set(key, value);
             }
+            recordPut(key);
             return true;
         } catch (Exception e) {
             logger.error("Redis opsForValue error: {}", e.getMessage());
@@ -148,6 +223,48 @@ public class RedisUtil {
         }
     }
 
+    /**
+     * 批量放入，一次往返，值为null时按 @Cacheable 的方式缓存空值
+     *
+     * @param keyValues redis key -> 值
+     * @param timeOf    redis key -> 时间(秒)，小于等于0 将设置无限期
+     * @return true成功 false 失败
+     */
+    public static boolean setAll(Map<String, ?> keyValues, ToLongFunction<String> timeOf) {
+        if (CollUtil.isEmpty(keyValues)) {
+            return true;
+        }
+        for (String key : keyValues.keySet()) {
+            if (key.contains(StrUtil.SPACE)) {
+                ThrowUtils.throwErr(ResponseEnum.EXCEPTION);
+            }
+        }
+        try {
+            REDIS_TEMPLATE.executePipelined((RedisCallback<Void>) connection -> {
+                keyValues.forEach((key, value) -> {
+
+                    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+                    byte[] rawValue = value == null
+                            ? NullValueRedisCacheWriter.BINARY_NULL_VALUE
+                            : VALUE_SERIALIZER.serialize(value);
+                    long time = timeOf.applyAsLong(key);
+
+                    if (time > 0) {
+                        connection.setEx(rawKey, time, rawValue);
+                    } else {
+                        connection.set(rawKey, rawValue);
+                    }
+                });
+                return VOID;
+            });
+            keyValues.keySet().forEach(RedisUtil::recordPut);
+            return true;
+        } catch (Exception e) {
+            logger.error("setAll() error: {}", e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * 递增 此时value值必须为int类型 否则报错
      *
@@ -192,6 +309,7 @@ public class RedisUtil {
             } else {
                 STRING_REDIS_TEMPLATE.opsForValue().set(key, String.valueOf(value));
             }
+            recordPut(key);
             return true;
         } catch (Exception e) {
             logger.error("setLongValue() error: {}", e.getMessage());
@@ -213,6 +331,7 @@ public class RedisUtil {
             ThrowUtils.throwErr(ResponseEnum.EXCEPTION);
         }
         String result = STRING_REDIS_TEMPLATE.opsForValue().get(key);
+        recordGet(key, result != null);
         if (result == null) {
             return null;
         }
@@ -234,6 +353,7 @@ public class RedisUtil {
             }
         }
         REDIS_TEMPLATE.delete(keys);
+        keys.forEach(RedisUtil::recordEviction);
     }
 
     /**
@@ -256,6 +376,7 @@ public class RedisUtil {
             }
         }
         REDIS_TEMPLATE.delete(keys);
+        CacheMeterUtil.evictionCounter(cacheName, CacheMeterUtil.LEVEL_DIRECT).increment(keys.size());
     }
 
     /**
@@ -276,7 +397,29 @@ public class RedisUtil {
                 Collections.singletonList(key),
                 value);
 
-        return !Objects.equals(result, 0L);
+        boolean deleted = !Objects.equals(result, 0L);
+
+        if (deleted) {
+            recordEviction(key);
+        }
+
+        return deleted;
+    }
+
+    // ============================metrics=============================
+
+    private static void recordGet(String key, boolean hit) {
+        String cacheName = CacheMeterUtil.cacheNameOf(key);
+        (hit ? CacheMeterUtil.hitCounter(cacheName, CacheMeterUtil.LEVEL_DIRECT)
+                : CacheMeterUtil.missCounter(cacheName, CacheMeterUtil.LEVEL_DIRECT)).increment();
+    }
+
+    private static void recordPut(String key) {
+        CacheMeterUtil.putCounter(CacheMeterUtil.cacheNameOf(key), CacheMeterUtil.LEVEL_DIRECT).increment();
+    }
+
+    private static void recordEviction(String key) {
+        CacheMeterUtil.evictionCounter(CacheMeterUtil.cacheNameOf(key), CacheMeterUtil.LEVEL_DIRECT).increment();
     }
 
 }
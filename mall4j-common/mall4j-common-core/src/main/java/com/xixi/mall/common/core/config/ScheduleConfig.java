@@ -0,0 +1,12 @@
+package com.xixi.mall.common.core.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务，用于本地缓存的周期性同步
+ */
+@Configuration
+@EnableScheduling
+public class ScheduleConfig {
+}
@@ -1,6 +1,7 @@
 package com.xixi.mall.common.core.constant;
 
 
+import com.xixi.mall.common.auth.constant.AuthConstant;
 import com.xixi.mall.common.core.feign.FeignInsideAuthConfig;
 
 public interface Auth {
@@ -11,4 +12,9 @@ public interface Auth {
 
     String CHECK_PERMISSION_URI = FeignInsideAuthConfig.FEIGN_URL + "/checkPermission";
 
+    /**
+     * 已校验的用户身份，由网关校验token后签名写入，格式与签名token相同
+     */
+    String IDENTITY_HEADER = AuthConstant.IDENTITY_HEADER;
+
 }
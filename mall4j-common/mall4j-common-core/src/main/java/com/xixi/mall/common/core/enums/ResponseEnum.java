@@ -1,5 +1,6 @@
 package com.xixi.mall.common.core.enums;
 
+import com.xixi.mall.common.auth.constant.AuthConstant;
 import lombok.AllArgsConstructor;
 import lombok.ToString;
 
@@ -33,7 +34,7 @@ public enum ResponseEnum {
     /**
      * 未授权
      */
-    UNAUTHORIZED("A00004", "Unauthorized"),
+    UNAUTHORIZED(AuthConstant.UNAUTHORIZED_CODE, AuthConstant.UNAUTHORIZED_MSG),
 
     /**
      * 服务器出了点小差
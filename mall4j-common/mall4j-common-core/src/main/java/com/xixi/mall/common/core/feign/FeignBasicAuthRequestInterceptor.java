@@ -22,8 +22,10 @@ public class FeignBasicAuthRequestInterceptor implements RequestInterceptor {
 
     @Override
     public void apply(RequestTemplate template) {
-        // feign的内部请求，往请求头放入key 和 secret进行校验
-        template.header(feignInsideAuthConfig.getKey(), feignInsideAuthConfig.getSecret());
+        // feign的内部请求，放入带时间戳的签名进行校验，签名包含参数与请求体，不再发送固定的secret
+        template.header(FeignInsideAuthConfig.SIGNATURE_HEADER, FeignInsideSigner.sign(feignInsideAuthConfig.getSecret(),
+                System.currentTimeMillis(), template.method(), template.path(),
+                StrUtil.removePrefix(template.queryLine(), "?"), template.body()));
 
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder
                 .getRequestAttributes();
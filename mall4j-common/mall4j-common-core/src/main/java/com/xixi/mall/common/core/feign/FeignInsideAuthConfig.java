@@ -25,6 +25,11 @@ public class FeignInsideAuthConfig {
 
     public static final String INSIDER_URL = "/insider";
 
+    /**
+     * 内部请求签名的请求头，值为 时间戳.HmacSHA256(secret, 时间戳 请求方法 路径 参数 请求体摘要)
+     */
+    public static final String SIGNATURE_HEADER = "X-Feign-Signature";
+
     @Value("${feign.inside.key}")
     private String key;
 
@@ -34,4 +39,15 @@ public class FeignInsideAuthConfig {
     @Value("#{'${feign.inside.ips:}'.split(',')}")
     private List<String> ips;
 
+    /**
+     * 签名时间戳允许的误差，以毫秒为单位
+     */
+    private long maxClockSkew = 30000;
+
+    /**
+     * 是否接受只携带固定secret的旧服务，已不再发送固定secret
+     * 仅在从不支持签名的版本滚动升级期间临时开启，全部服务升级后关闭，该配置将在后续版本移除
+     */
+    private boolean legacySecretEnabled = false;
+
 }
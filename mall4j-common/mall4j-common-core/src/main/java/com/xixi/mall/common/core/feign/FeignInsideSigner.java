@@ -0,0 +1,108 @@
+package com.xixi.mall.common.core.feign;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * 内部请求签名
+ * 签名为 时间戳.HmacSHA256(secret, 时间戳\n请求方法\n路径\n参数\nSHA256(请求体))，
+ * 签名与请求的路径、参数及请求体绑定且有时效，泄露后无法用于其它请求，也无法替换参数或请求体重放
+ * 路径为不含context-path的原始路径，参数为未解码的原始参数，与 RequestTemplate.path()/queryLine() 一致
+ */
+public final class FeignInsideSigner {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final char SEPARATOR = '.';
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private FeignInsideSigner() {
+    }
+
+    /**
+     * 签名
+     *
+     * @param secret    密钥
+     * @param timestamp 时间戳
+     * @param method    请求方法
+     * @param path      请求路径，不含参数
+     * @param query     未解码的参数，不含"?"，没有参数时为空
+     * @param body      请求体，没有请求体时为空
+     * @return 签名
+     */
+    public static String sign(String secret, long timestamp, String method, String path, String query, byte[] body) {
+        return timestamp + String.valueOf(SEPARATOR)
+                + ENCODER.encodeToString(hmac(secret, timestamp, method, path, query, body));
+    }
+
+    /**
+     * 校验签名
+     *
+     * @param secret        密钥
+     * @param signature     签名
+     * @param method        请求方法
+     * @param path          请求路径，不含参数
+     * @param query         未解码的参数，不含"?"，没有参数时为空
+     * @param body          请求体，没有请求体时为空
+     * @param maxClockSkew  时间戳允许的误差，以毫秒为单位
+     * @return 是否校验成功
+     */
+    public static boolean verify(String secret, String signature, String method, String path, String query,
+                                 byte[] body, long maxClockSkew) {
+
+        int index = signature.indexOf(SEPARATOR);
+
+        if (index <= 0 || secret == null) {
+            return false;
+        }
+
+        long timestamp;
+        byte[] mac;
+
+        try {
+            timestamp = Long.parseLong(signature.substring(0, index));
+            mac = DECODER.decode(signature.substring(index + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        if (Math.abs(System.currentTimeMillis() - timestamp) > maxClockSkew) {
+            return false;
+        }
+
+        return MessageDigest.isEqual(mac, hmac(secret, timestamp, method, path, query, body));
+    }
+
+    private static byte[] hmac(String secret, long timestamp, String method, String path, String query, byte[] body) {
+
+        String signingInput = timestamp + "\n" + method + "\n" + path + "\n" + (query == null ? "" : query)
+                + "\n" + ENCODER.encodeToString(sha256(body));
+
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(body == null ? new byte[0] : body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -87,7 +87,20 @@ public class PrincipalUtil {
      * @return 匹配结果
      */
     public static boolean isSimpleChar(String value) {
-        return isMatching(SIMPLE_CHAR_REGEXP, value);
+
+        // 与 SIMPLE_CHAR_REGEXP 等价，逐字符判断，避免每次调用都编译正则
+        if (StrUtil.isBlank(value)) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < 'a' || c > 'z') && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     /**
@@ -0,0 +1,45 @@
+package com.xixi.mall.common.security.bo;
+
+import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
+import com.xixi.mall.common.auth.constant.AuthConstant;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 签名token与用户身份中携带的声明
+ */
+@Getter
+@Setter
+@ToString
+public class TokenClaimsBo {
+
+    /**
+     * 类型，签名token与用户身份不能互相冒用
+     *
+     * @see AuthConstant#TOKEN_TYPE_ACCESS
+     * @see AuthConstant#TOKEN_TYPE_IDENTITY
+     */
+    private String typ;
+
+    /**
+     * token唯一id，即redis中保存的真实accessToken
+     */
+    private String jti;
+
+    /**
+     * 过期时间戳，以毫秒为单位
+     */
+    private Long exp;
+
+    /**
+     * 保存在token信息里面的用户信息
+     */
+    private UserInfoInTokenBo userInfoInToken;
+
+    /**
+     * 用户身份中使用，网关是否已确定该用户有请求路径的权限，为true时下游不再校验权限
+     */
+    private Boolean rbacChecked;
+
+}
@@ -0,0 +1,46 @@
+package com.xixi.mall.common.security.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 已校验用户身份的签名配置
+ * 网关校验token后将用户信息签名写入请求头，AuthFilter验签通过后直接使用，无需再请求auth服务
+ * 网关与各服务需使用相同的密钥，轮换方式与签名token相同
+ */
+@Setter
+@Getter
+@ToString(exclude = "keys")
+@RefreshScope
+@Configuration
+@ConfigurationProperties("auth.identity")
+public class IdentityConfig {
+
+    /**
+     * 是否信任请求头中的用户身份
+     */
+    private boolean enabled = false;
+
+    /**
+     * 当前用于签名的密钥id
+     */
+    private String currentKid;
+
+    /**
+     * 密钥id -> 密钥
+     */
+    private Map<String, String> keys = new HashMap<>();
+
+    /**
+     * 签名的有效期，以毫秒为单位
+     */
+    private long ttl = 30000;
+
+}
@@ -0,0 +1,40 @@
+package com.xixi.mall.common.security.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 本地权限校验配置
+ * AuthFilter 定时从rbac服务同步 uri -> 权限 规则，在本地完成权限校验，本地规则不可用时再请求rbac服务
+ */
+@Setter
+@Getter
+@ToString
+@Configuration
+@ConfigurationProperties("auth.rbac")
+public class RbacConfig {
+
+    /**
+     * 是否在本地校验权限
+     */
+    private boolean localEnabled = true;
+
+    /**
+     * 同步uri权限规则的间隔，以毫秒为单位
+     */
+    private long syncInterval = 10000;
+
+    /**
+     * 最多缓存多少个用户的权限
+     */
+    private long userPermissionsMaximumSize = 10000;
+
+    /**
+     * 用户权限缓存时间，以秒为单位，用户权限变更时rbac服务会通知各节点立即失效
+     */
+    private long userPermissionsTtl = 300;
+
+}
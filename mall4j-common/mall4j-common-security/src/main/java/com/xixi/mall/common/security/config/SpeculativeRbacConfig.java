@@ -0,0 +1,51 @@
+package com.xixi.mall.common.security.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 并行权限校验配置
+ * token需要远程校验时，AuthFilter 根据该token上次解析出的用户信息提前发起权限校验，与token校验同时进行，
+ * token校验结果与提前使用的用户信息不一致时丢弃该结果
+ */
+@Setter
+@Getter
+@ToString
+@Configuration
+@ConfigurationProperties("auth.rbac.speculative")
+public class SpeculativeRbacConfig {
+
+    /**
+     * 是否开启并行权限校验
+     */
+    private boolean enabled = false;
+
+    /**
+     * 校验线程数
+     */
+    private int threads = 16;
+
+    /**
+     * 等待队列长度，队列已满时退回为顺序校验
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * 最多记录多少个token的用户信息
+     */
+    private long hintMaximumSize = 10000;
+
+    /**
+     * token的用户信息记录时间，以秒为单位，只用于提前发起权限校验，不作为校验依据
+     */
+    private long hintTtl = 7200;
+
+    /**
+     * 等待提前发起的权限校验的最长时间，以毫秒为单位，超时后退回为顺序校验
+     */
+    private long timeout = 3000;
+
+}
@@ -0,0 +1,35 @@
+package com.xixi.mall.common.security.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * token本地缓存配置
+ * AuthFilter 将校验通过的token与用户信息缓存在本地，token被删除、刷新、更新时通过redis发布订阅通知各节点失效
+ */
+@Setter
+@Getter
+@ToString
+@Configuration
+@ConfigurationProperties("auth.token.near-cache")
+public class TokenNearCacheConfig {
+
+    /**
+     * 是否开启本地缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多缓存多少个token
+     */
+    private long maximumSize = 10000;
+
+    /**
+     * 缓存的最长时间，以秒为单位，token本身的过期时间更早时以token为准
+     */
+    private long ttl = 60;
+
+}
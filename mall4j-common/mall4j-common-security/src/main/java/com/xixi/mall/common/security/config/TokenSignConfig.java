@@ -0,0 +1,56 @@
+package com.xixi.mall.common.security.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 签名token配置
+ * 开启后登录返回自校验的签名token，AuthFilter在本地验签，无需再请求auth服务与redis
+ * 轮换密钥时先在keys中新增密钥，再切换currentKid，旧密钥保留到旧token全部过期后再删除
+ * 关闭签发后已签发的token仍可通过keys中的密钥验签，吊销列表会继续同步，待旧token全部过期后再清空keys
+ */
+@Setter
+@Getter
+@ToString(exclude = "keys")
+@RefreshScope
+@Configuration
+@ConfigurationProperties("auth.token.sign")
+public class TokenSignConfig {
+
+    /**
+     * 是否签发签名token
+     */
+    private boolean enabled = false;
+
+    /**
+     * 当前用于签名的密钥id
+     */
+    private String currentKid;
+
+    /**
+     * 密钥id -> 密钥
+     */
+    private Map<String, String> keys = new HashMap<>();
+
+    /**
+     * 吊销列表同步间隔，以毫秒为单位
+     */
+    private long revocationSyncInterval = 5000;
+
+    /**
+     * 是否仍有可以验签的密钥，关闭签发后已签发的签名token在过期前仍然有效，需要继续吊销
+     *
+     * @return 是否可以验签
+     */
+    public boolean isVerifiable() {
+        return keys != null && !keys.isEmpty();
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.xixi.mall.common.security.feign;
+
+import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
+import com.xixi.mall.common.core.constant.Auth;
+import com.xixi.mall.common.security.config.IdentityConfig;
+import com.xixi.mall.common.security.context.AuthUserContext;
+import com.xixi.mall.common.security.token.IdentityService;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.Resource;
+
+/**
+ * feign调用时将当前用户签名后放入请求头，下游AuthFilter验签后直接保存上下文，无需再通过auth服务校验token
+ * 同一个请求内多次feign调用复用同一个签名，签名剩余有效期不足一半时重新签名
+ */
+@Component
+public class IdentityFeignRequestInterceptor implements RequestInterceptor {
+
+    private static final String IDENTITY_ATTRIBUTE = IdentityFeignRequestInterceptor.class.getName() + ".identity";
+
+    private static final String SIGN_TIME_ATTRIBUTE = IdentityFeignRequestInterceptor.class.getName() + ".signTime";
+
+    @Resource
+    private IdentityService identityService;
+
+    @Resource
+    private IdentityConfig identityConfig;
+
+    @Override
+    public void apply(RequestTemplate template) {
+
+        UserInfoInTokenBo userInfoInToken = AuthUserContext.get();
+
+        if (userInfoInToken == null || !identityService.isEnabled()) {
+            return;
+        }
+
+        String identity = getIdentity(userInfoInToken);
+
+        if (identity != null) {
+            template.header(Auth.IDENTITY_HEADER, identity);
+        }
+    }
+
+    private String getIdentity(UserInfoInTokenBo userInfoInToken) {
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        long now = System.currentTimeMillis();
+
+        if (attributes != null) {
+
+            Object identity = attributes.getAttribute(IDENTITY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            Object signTime = attributes.getAttribute(SIGN_TIME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+            if (identity != null && signTime != null && now - (Long) signTime < identityConfig.getTtl() / 2) {
+                return (String) identity;
+            }
+        }
+
+        String identity = identityService.sign(userInfoInToken);
+
+        if (attributes != null && identity != null) {
+            attributes.setAttribute(IDENTITY_ATTRIBUTE, identity, RequestAttributes.SCOPE_REQUEST);
+            attributes.setAttribute(SIGN_TIME_ATTRIBUTE, now, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return identity;
+    }
+
+}
@@ -1,6 +1,5 @@
 package com.xixi.mall.common.security.filter;
 
-import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
@@ -8,25 +7,38 @@ import com.xixi.mall.api.auth.constant.SysTypeEnum;
 import com.xixi.mall.api.auth.feign.TokenFeignClient;
 import com.xixi.mall.api.rabc.constant.HttpMethodEnum;
 import com.xixi.mall.api.rabc.feign.PermissionFeignClient;
+import com.xixi.mall.common.auth.token.TokenCodec;
 import com.xixi.mall.common.core.constant.Auth;
 import com.xixi.mall.common.core.enums.ResponseEnum;
 import com.xixi.mall.common.core.feign.FeignInsideAuthConfig;
+import com.xixi.mall.common.core.feign.FeignInsideSigner;
+import com.xixi.mall.common.core.handle.CachedBodyWrapper;
 import com.xixi.mall.common.core.handle.HttpHandler;
-import com.xixi.mall.common.core.utils.IpHelper;
 import com.xixi.mall.common.core.webbase.vo.ServerResponse;
 import com.xixi.mall.common.security.adapter.AuthConfigAdapter;
+import com.xixi.mall.common.security.bo.TokenClaimsBo;
+import com.xixi.mall.common.security.config.RbacConfig;
 import com.xixi.mall.common.security.context.AuthUserContext;
+import com.xixi.mall.common.security.matcher.CidrTrie;
+import com.xixi.mall.common.security.matcher.PathPatternTrie;
+import com.xixi.mall.common.security.rbac.RbacEvaluator;
+import com.xixi.mall.common.security.rbac.SpeculativeRbacExecutor;
+import com.xixi.mall.common.security.token.IdentityService;
+import com.xixi.mall.common.security.token.SignedTokenService;
+import com.xixi.mall.common.security.token.TokenNearCache;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * 授权过滤，只要实现AuthConfigAdapter接口，添加对应路径即可：
@@ -47,6 +59,62 @@ public class AuthFilter implements Filter {
     @Resource
     private FeignInsideAuthConfig feignInsideAuthConfig;
 
+    @Resource
+    private SignedTokenService signedTokenService;
+
+    @Resource
+    private TokenNearCache tokenNearCache;
+
+    @Resource
+    private RbacConfig rbacConfig;
+
+    @Resource
+    private RbacEvaluator rbacEvaluator;
+
+    @Resource
+    private IdentityService identityService;
+
+    @Resource
+    private SpeculativeRbacExecutor speculativeRbacExecutor;
+
+    /**
+     * 与auth服务的滑动过期配置一致，开启后token最长可以延长到 maxLifetime
+     */
+    @Value("${auth.token.session.sliding-enabled:false}")
+    private boolean slidingEnabled;
+
+    @Value("${auth.token.session.max-lifetime:43200}")
+    private long maxLifetime;
+
+    /**
+     * 不需要授权的路径，启动及配置刷新时编译一次
+     */
+    private volatile PathPatternTrie excludePathTrie;
+
+    /**
+     * 每个请求都会解码token，复用解码结果，解码时不创建对象
+     */
+    private final ThreadLocal<TokenCodec.DecodedToken> decodedTokens = ThreadLocal.withInitial(TokenCodec.DecodedToken::new);
+
+    /**
+     * feign内部请求的ip白名单，启动及配置刷新时编译一次
+     */
+    private volatile CidrTrie feignIpAllowList;
+
+    @PostConstruct
+    public void init() {
+        compile();
+    }
+
+    /**
+     * 配置类为 @RefreshScope，需要在其重新绑定之后再编译
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void compile() {
+        excludePathTrie = PathPatternTrie.compile(authConfigAdapter.excludePathPatterns());
+        feignIpAllowList = CidrTrie.compile(feignInsideAuthConfig.getIps());
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -54,12 +122,20 @@ public class AuthFilter implements Filter {
         HttpServletRequest req = (HttpServletRequest) request;
         HttpServletResponse resp = (HttpServletResponse) response;
         String reqUri = req.getRequestURI();
+        String method = req.getMethod();
 
-        if (reqUri.startsWith(FeignInsideAuthConfig.FEIGN_URL)
-                && !feignRequestCheck(req) //校验是否是合法的feign调用
-        ) {
-            HttpHandler.printServerResponseToWeb(ServerResponse.fail(ResponseEnum.UNAUTHORIZED));
-            return;
+        if (reqUri.startsWith(FeignInsideAuthConfig.FEIGN_URL)) {
+
+            // 签名包含请求体摘要，预先读取请求体，后续仍可以正常读取
+            CachedBodyWrapper cachedBodyReq = new CachedBodyWrapper(req);
+
+            //校验是否是合法的feign调用
+            if (!feignRequestCheck(cachedBodyReq)) {
+                HttpHandler.printServerResponseToWeb(ServerResponse.fail(ResponseEnum.UNAUTHORIZED));
+                return;
+            }
+
+            req = cachedBodyReq;
         }
 
         if (Auth.CHECK_TOKEN_URI.equals(reqUri)) {
@@ -67,38 +143,81 @@ public class AuthFilter implements Filter {
             return;
         }
 
-        AntPathMatcher pathMatcher = new AntPathMatcher();
+        // 网关或上游服务已校验过token时直接使用签名的用户身份
+        TokenClaimsBo identity = identityService.verify(req.getHeader(Auth.IDENTITY_HEADER));
+        UserInfoInTokenBo userInfoInToken = identity == null ? null : identity.getUserInfoInToken();
 
-        // 如果匹配不需要授权的路径，就不需要校验是否需要授权
-        if (
-                ObjectUtil.defaultIfNull(authConfigAdapter.excludePathPatterns(), Collections.emptyList())
-                        .stream().anyMatch(excludePath -> pathMatcher.match((String) excludePath, reqUri))
-        ) {
-            chain.doFilter(req, resp);
+        // 如果匹配不需要授权的路径，就不需要校验是否需要授权，携带了用户身份时同样保存上下文
+        if (excludePathTrie.matches(reqUri)) {
+            doFilterWithUser(userInfoInToken, req, resp, chain);
             return;
         }
 
-        String accessToken = req.getHeader("Authorization");
+        // 提前发起的权限校验结果，没有提前校验或结果不可用时为null；网关已确定有权限时不再校验
+        Boolean permitted = identity != null && Boolean.TRUE.equals(identity.getRbacChecked()) ? Boolean.TRUE : null;
+
+        if (userInfoInToken == null) {
+
+            String accessToken = req.getHeader("Authorization");
+
+            if (StrUtil.isBlank(accessToken)) {
+                HttpHandler.printServerResponseToWeb(ServerResponse.fail(ResponseEnum.UNAUTHORIZED));
+                return;
+            }
+
+            // 本地缓存只查询一次，提前校验与token校验共用
+            UserInfoInTokenBo nearCached = signedTokenService.isSignedToken(accessToken)
+                    ? null
+                    : tokenNearCache.get(accessToken);
+
+            // token需要远程校验时，用该token上次的用户信息同时发起权限校验
+            UserInfoInTokenBo hint = getSpeculativeHint(accessToken, nearCached);
+            Future<Boolean> speculativeRbac = hint == null
+                    ? null
+                    : speculativeRbacExecutor.submit(() -> checkRbac(hint, reqUri, method));
+
+            // 校验token，并返回用户信息
+            userInfoInToken = speculativeRbacExecutor.timed(SpeculativeRbacExecutor.PHASE_TOKEN,
+                    () -> checkToken(accessToken, nearCached));
 
-        if (StrUtil.isBlank(accessToken)) {
+            if (speculativeRbacExecutor.isEnabled()) {
+                updateSpeculativeHint(accessToken, userInfoInToken);
+            }
+
+            if (speculativeRbac != null) {
+                if (userInfoInToken != null && SpeculativeRbacExecutor.isSameSubject(hint, userInfoInToken)) {
+                    permitted = speculativeRbacExecutor.join(speculativeRbac);
+                } else {
+                    speculativeRbac.cancel(true);
+                }
+            }
+        }
+
+        if (userInfoInToken == null) {
             HttpHandler.printServerResponseToWeb(ServerResponse.fail(ResponseEnum.UNAUTHORIZED));
             return;
         }
 
-        // 校验token，并返回用户信息
-        ServerResponse<UserInfoInTokenBo> userInfoInTokenVoServerResponse = tokenFeignClient
-                .checkToken(accessToken);
+        if (permitted == null) {
+            UserInfoInTokenBo user = userInfoInToken;
+            permitted = speculativeRbacExecutor.timed(SpeculativeRbacExecutor.PHASE_RBAC,
+                    () -> checkRbac(user, reqUri, method));
+        }
 
-        if (!userInfoInTokenVoServerResponse.isSuccess()) {
+        // 需要用户角色权限，就去根据用户角色权限判断是否
+        if (!permitted) {
             HttpHandler.printServerResponseToWeb(ServerResponse.fail(ResponseEnum.UNAUTHORIZED));
             return;
         }
 
-        UserInfoInTokenBo userInfoInToken = userInfoInTokenVoServerResponse.getData();
+        doFilterWithUser(userInfoInToken, req, resp, chain);
+    }
 
-        // 需要用户角色权限，就去根据用户角色权限判断是否
-        if (!checkRbac(userInfoInToken, reqUri, req.getMethod())) {
-            HttpHandler.printServerResponseToWeb(ServerResponse.fail(ResponseEnum.UNAUTHORIZED));
+    private void doFilterWithUser(UserInfoInTokenBo userInfoInToken, HttpServletRequest req, HttpServletResponse resp,
+                                  FilterChain chain) throws IOException, ServletException {
+
+        if (userInfoInToken == null) {
+            chain.doFilter(req, resp);
             return;
         }
 
@@ -110,25 +229,120 @@ public class AuthFilter implements Filter {
         } finally {
             AuthUserContext.clean();
         }
+    }
+
+    /**
+     * 校验token，签名token在本地验签，旧的token优先查本地缓存，未命中再通过auth服务校验
+     *
+     * @param accessToken accessToken
+     * @param nearCached  本地缓存的用户信息，未命中为null
+     * @return 用户信息，校验失败返回null
+     */
+    private UserInfoInTokenBo checkToken(String accessToken, UserInfoInTokenBo nearCached) {
+
+        if (signedTokenService.isSignedToken(accessToken)) {
+            TokenClaimsBo claims = signedTokenService.verify(accessToken);
+            return claims == null ? null : claims.getUserInfoInToken();
+        }
+
+        if (nearCached != null) {
+            return nearCached;
+        }
+
+        ServerResponse<UserInfoInTokenBo> userInfoInTokenVoServerResponse = tokenFeignClient
+                .checkToken(accessToken);
+
+        if (!userInfoInTokenVoServerResponse.isSuccess()) {
+            return null;
+        }
+
+        UserInfoInTokenBo userInfoInToken = userInfoInTokenVoServerResponse.getData();
+        tokenNearCache.put(accessToken, userInfoInToken, getTokenExpiresAt(accessToken));
 
+        return userInfoInToken;
     }
 
-    private boolean feignRequestCheck(HttpServletRequest req) {
+    /**
+     * 根据token的创建时间计算最晚的过期时间，本地缓存不会超过该时间
+     *
+     * @param accessToken base64 token
+     * @return 过期时间戳，格式有误时返回null
+     */
+    private Long getTokenExpiresAt(String accessToken) {
 
-        String feignInsideSecret = req.getHeader(feignInsideAuthConfig.getKey());
+        TokenCodec.DecodedToken decodedToken = decodedTokens.get();
 
-        // 校验feign 请求携带的key 和 value是否正确
-        if (StrUtil.isBlank(feignInsideSecret)
-                || ObjectUtil.notEqual(feignInsideSecret, feignInsideAuthConfig.getSecret())) {
-            return false;
+        if (!TokenCodec.decode(accessToken, decodedToken)) {
+            return null;
+        }
+
+        long expiresIn = SysTypeEnum.getExpiresIn(decodedToken.getSysType());
+
+        if (slidingEnabled) {
+            expiresIn = Math.max(expiresIn, maxLifetime);
+        }
+
+        return decodedToken.getCreateTime() + expiresIn * 1000;
+    }
+
+    /**
+     * 获取提前发起权限校验使用的用户信息，token可以在本地校验或不需要校验权限时不提前校验
+     *
+     * @param accessToken accessToken
+     * @param nearCached  本地缓存的用户信息，命中时token在本地校验，不提前校验
+     * @return 用户信息，不提前校验时返回null
+     */
+    private UserInfoInTokenBo getSpeculativeHint(String accessToken, UserInfoInTokenBo nearCached) {
+
+        if (!speculativeRbacExecutor.isEnabled()
+                || nearCached != null
+                || signedTokenService.isSignedToken(accessToken)) {
+            return null;
+        }
+
+        UserInfoInTokenBo hint = speculativeRbacExecutor.getHint(accessToken);
+
+        return hint != null && needRbac(hint) ? hint : null;
+    }
+
+    private void updateSpeculativeHint(String accessToken, UserInfoInTokenBo userInfoInToken) {
+
+        if (userInfoInToken == null) {
+            speculativeRbacExecutor.removeHint(accessToken);
+        } else if (needRbac(userInfoInToken)) {
+            speculativeRbacExecutor.putHint(accessToken, userInfoInToken);
+        }
+    }
+
+    private boolean feignRequestCheck(CachedBodyWrapper req) {
+
+        String signature = req.getHeader(FeignInsideAuthConfig.SIGNATURE_HEADER);
+
+        if (StrUtil.isNotBlank(signature)) {
+
+            // 校验带时间戳的签名，路径与feign签名时一致，不含context-path
+            if (!FeignInsideSigner.verify(feignInsideAuthConfig.getSecret(), signature, req.getMethod(),
+                    req.getRequestURI().substring(req.getContextPath().length()), req.getQueryString(),
+                    req.getBody(), feignInsideAuthConfig.getMaxClockSkew())) {
+                return false;
+            }
+        } else {
+
+            String feignInsideSecret = req.getHeader(feignInsideAuthConfig.getKey());
+
+            // 兼容只携带固定secret的旧服务，只在滚动升级期间开启
+            if (!feignInsideAuthConfig.isLegacySecretEnabled()
+                    || StrUtil.isBlank(feignInsideSecret)
+                    || ObjectUtil.notEqual(feignInsideSecret, feignInsideAuthConfig.getSecret())) {
+                return false;
+            }
         }
 
-        List<String> ips = feignInsideAuthConfig.getIps(); // ip白名单
-        ips.removeIf(StrUtil::isBlank); // 移除无用的空ip
+        CidrTrie ipAllowList = feignIpAllowList;
 
-        // 有ip白名单，且ip不在白名单内，校验失败
-        if (CollectionUtil.isNotEmpty(ips) && !ips.contains(IpHelper.getIpAddr())) {
-            log.error("ip not in ip White list: {}, ip, {}", ips, IpHelper.getIpAddr());
+        // 有ip白名单，且ip不在白名单内，校验失败；内部请求直连，不信任可伪造的转发请求头
+        if (!ipAllowList.isEmpty() && !ipAllowList.contains(req.getRemoteAddr())) {
+            log.error("ip not in ip White list: {}, ip, {}", feignInsideAuthConfig.getIps(), req.getRemoteAddr());
             return false;
         }
 
@@ -136,25 +350,34 @@ public class AuthFilter implements Filter {
     }
 
     /**
-     * 用户角色权限校验
+     * 用户角色权限校验，优先在本地校验，本地规则不可用时再通过rbac服务校验
      *
      * @param uri uri
      * @return 是否校验成功
      */
     public boolean checkRbac(UserInfoInTokenBo userInfoInToken, String uri, String method) {
 
-        if (ObjectUtil.notEqual(SysTypeEnum.PLATFORM.getValue(), userInfoInToken.getSysType())
-                && ObjectUtil.notEqual(SysTypeEnum.MULTISHOP.getValue(), userInfoInToken.getSysType())) {
-
+        if (!needRbac(userInfoInToken)) {
             return true;
         }
 
+        Integer methodValue = HttpMethodEnum.valueOf(method.toUpperCase()).getValue();
+
+        if (rbacConfig.isLocalEnabled()) {
+
+            Boolean localResult = rbacEvaluator.check(userInfoInToken, uri, methodValue);
+
+            if (localResult != null) {
+                return localResult;
+            }
+        }
+
         ServerResponse<Boolean> booleanServerResponse = permissionFeignClient.checkPermission(
                 userInfoInToken.getUserId(),
                 userInfoInToken.getSysType(),
                 uri,
                 userInfoInToken.getIsAdmin(),
-                HttpMethodEnum.valueOf(method.toUpperCase()).getValue()
+                methodValue
         );
 
         if (booleanServerResponse.unSuccess())
@@ -163,4 +386,12 @@ public class AuthFilter implements Filter {
         return booleanServerResponse.getData();
     }
 
+    /**
+     * 只有商家端与平台端需要校验用户角色权限
+     */
+    private static boolean needRbac(UserInfoInTokenBo userInfoInToken) {
+        return ObjectUtil.equal(SysTypeEnum.PLATFORM.getValue(), userInfoInToken.getSysType())
+                || ObjectUtil.equal(SysTypeEnum.MULTISHOP.getValue(), userInfoInToken.getSysType());
+    }
+
 }
@@ -0,0 +1,235 @@
+package com.xixi.mall.common.security.matcher;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+
+/**
+ * 预编译的ip白名单，支持ipv4与ipv6的单个ip及CIDR网段
+ * 网段按地址的二进制位组成前缀树，匹配时最多遍历32/128层，与白名单大小无关
+ */
+@Slf4j
+public final class CidrTrie {
+
+    /**
+     * ipv4映射的ipv6地址 ::ffff:0:0/96 的前缀长度
+     */
+    private static final int IPV4_MAPPED_PREFIX_LENGTH = 96;
+
+    private final Node ipv4Root = new Node();
+
+    private final Node ipv6Root = new Node();
+
+    private boolean empty = true;
+
+    private CidrTrie() {
+    }
+
+    /**
+     * 编译ip白名单，空白及格式有误的项会被忽略
+     *
+     * @param cidrs ip或CIDR网段，如 10.0.0.1 192.168.0.0/16 fd00::/8
+     * @return ip白名单
+     */
+    public static CidrTrie compile(Collection<String> cidrs) {
+
+        CidrTrie trie = new CidrTrie();
+
+        if (cidrs == null) {
+            return trie;
+        }
+
+        for (String cidr : cidrs) {
+
+            if (cidr == null || cidr.trim().isEmpty()) {
+                continue;
+            }
+
+            if (!trie.add(cidr.trim())) {
+                log.error("invalid ip white list item: {}", cidr);
+            }
+        }
+
+        return trie;
+    }
+
+    /**
+     * 白名单是否为空
+     *
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * ip是否在白名单内
+     *
+     * @param ip ip
+     * @return 是否在白名单内
+     */
+    public boolean contains(String ip) {
+
+        byte[] address = parse(ip);
+
+        if (address == null) {
+            return false;
+        }
+
+        Node node = address.length == 4 ? ipv4Root : ipv6Root;
+        int bits = address.length * 8;
+
+        for (int i = 0; node != null; i++) {
+
+            if (node.terminal) {
+                return true;
+            }
+
+            if (i == bits) {
+                return false;
+            }
+
+            node = bit(address, i) == 0 ? node.zero : node.one;
+        }
+
+        return false;
+    }
+
+    private boolean add(String cidr) {
+
+        int slash = cidr.indexOf('/');
+        byte[] address = parse(slash < 0 ? cidr : cidr.substring(0, slash));
+
+        if (address == null) {
+            return false;
+        }
+
+        int bits = address.length * 8;
+        int prefixLength = bits;
+
+        if (slash >= 0) {
+
+            String prefix = cidr.substring(slash + 1);
+
+            if (prefix.isEmpty() || prefix.length() > 3 || !isDigits(prefix)) {
+                return false;
+            }
+
+            prefixLength = Integer.parseInt(prefix);
+
+            // ipv4映射的ipv6网段，如 ::ffff:10.0.0.0/104，前缀长度按ipv6计算，需要转换为ipv4的前缀长度
+            if (address.length == 4 && cidr.indexOf(':') >= 0) {
+                prefixLength -= IPV4_MAPPED_PREFIX_LENGTH;
+            }
+        }
+
+        if (prefixLength < 0 || prefixLength > bits) {
+            return false;
+        }
+
+        Node node = address.length == 4 ? ipv4Root : ipv6Root;
+
+        for (int i = 0; i < prefixLength && !node.terminal; i++) {
+            if (bit(address, i) == 0) {
+                node = node.zero == null ? node.zero = new Node() : node.zero;
+            } else {
+                node = node.one == null ? node.one = new Node() : node.one;
+            }
+        }
+
+        node.terminal = true;
+        empty = false;
+
+        return true;
+    }
+
+    /**
+     * 只解析ip字面量，不进行dns解析
+     */
+    private static byte[] parse(String ip) {
+
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != '.' && c != ':') {
+                return null;
+            }
+        }
+
+        // 不含 : 的只能是ipv4，格式有误时不交给 InetAddress，避免被当作主机名进行dns解析
+        if (ip.indexOf(':') < 0 && !isIpv4(ip)) {
+            return null;
+        }
+
+        try {
+            // ipv6加上方括号，格式有误时直接抛出异常而不是进行dns解析，ipv4映射的ipv6地址会被解析为ipv4
+            return InetAddress.getByName(ip.indexOf(':') < 0 ? ip : "[" + ip + "]").getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 点分十进制的ipv4，每段为1到3位且不大于255
+     */
+    private static boolean isIpv4(String ip) {
+
+        int dots = 0,
+                start = 0;
+
+        for (int i = 0; i <= ip.length(); i++) {
+
+            if (i < ip.length() && ip.charAt(i) != '.') {
+                continue;
+            }
+
+            String octet = ip.substring(start, i);
+
+            if (octet.isEmpty() || octet.length() > 3 || !isDigits(octet) || Integer.parseInt(octet) > 255) {
+                return false;
+            }
+
+            if (i < ip.length()) {
+                dots++;
+            }
+
+            start = i + 1;
+        }
+
+        return dots == 3;
+    }
+
+    private static boolean isDigits(String str) {
+
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static final class Node {
+
+        private Node zero;
+
+        private Node one;
+
+        /**
+         * 有网段在此结束
+         */
+        private boolean terminal;
+    }
+
+}
@@ -0,0 +1,375 @@
+package com.xixi.mall.common.security.matcher;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的路径匹配树，匹配规则与 AntPathMatcher 一致
+ * 路径模式按 / 拆分为节点，字面量节点按hash二分查找，* ** 以及含通配符的片段单独保存，
+ * 匹配时直接在原始路径上按下标遍历，不拆分字符串，也不创建对象
+ * 含有正则变量 {name:regex} 或不以 / 开头的模式无法放入树中，仍然使用 AntPathMatcher 逐个匹配
+ */
+public final class PathPatternTrie {
+
+    private static final char SEPARATOR = '/';
+
+    private static final String SINGLE_WILDCARD = "*";
+
+    private static final String DOUBLE_WILDCARD = "**";
+
+    private static final PathPatternTrie EMPTY = new PathPatternTrie(new Node().freeze(), new String[0]);
+
+    private final Node root;
+
+    private final String[] fallbackPatterns;
+
+    private final AntPathMatcher fallbackMatcher = new AntPathMatcher();
+
+    private PathPatternTrie(Node root, String[] fallbackPatterns) {
+        this.root = root;
+        this.fallbackPatterns = fallbackPatterns;
+    }
+
+    /**
+     * 编译路径模式
+     *
+     * @param patterns 路径模式
+     * @return 路径匹配树
+     */
+    public static PathPatternTrie compile(Collection<String> patterns) {
+
+        if (patterns == null || patterns.isEmpty()) {
+            return EMPTY;
+        }
+
+        Node root = new Node();
+        List<String> fallbackPatterns = new ArrayList<>();
+
+        for (String pattern : patterns) {
+
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+
+            if (pattern.charAt(0) != SEPARATOR || pattern.indexOf(':') >= 0) {
+                fallbackPatterns.add(pattern);
+                continue;
+            }
+
+            Node node = root;
+
+            for (String segment : pattern.split(String.valueOf(SEPARATOR))) {
+
+                if (segment.isEmpty()) {
+                    continue;
+                }
+
+                node = node.child(segment);
+            }
+
+            if (pattern.charAt(pattern.length() - 1) == SEPARATOR) {
+                node.terminalWithSlash = true;
+            } else {
+                node.terminal = true;
+            }
+        }
+
+        return new PathPatternTrie(root.freeze(), fallbackPatterns.toArray(new String[0]));
+    }
+
+    /**
+     * 路径是否匹配任意一个模式
+     *
+     * @param path 请求路径
+     * @return 是否匹配
+     */
+    public boolean matches(String path) {
+
+        if (path == null) {
+            return false;
+        }
+
+        if (!path.isEmpty() && path.charAt(0) == SEPARATOR
+                && match(root, path, 0, path.charAt(path.length() - 1) == SEPARATOR, false)) {
+            return true;
+        }
+
+        for (String pattern : fallbackPatterns) {
+            if (fallbackMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 从pos开始匹配剩余的路径
+     *
+     * @param afterMulti 是否已经经过 **
+     */
+    private static boolean match(Node node, String path, int pos, boolean endsWithSlash, boolean afterMulti) {
+
+        int length = path.length();
+
+        // 连续的 / 视为一个
+        while (pos < length && path.charAt(pos) == SEPARATOR) {
+            pos++;
+        }
+
+        if (pos == length) {
+            return matchEnd(node, endsWithSlash, afterMulti);
+        }
+
+        int segmentEnd = path.indexOf(SEPARATOR, pos);
+
+        if (segmentEnd < 0) {
+            segmentEnd = length;
+        }
+
+        Node literal = node.findLiteral(path, pos, segmentEnd);
+
+        if (literal != null && match(literal, path, segmentEnd, endsWithSlash, afterMulti)) {
+            return true;
+        }
+
+        if (node.single != null && match(node.single, path, segmentEnd, endsWithSlash, afterMulti)) {
+            return true;
+        }
+
+        for (int i = 0; i < node.globs.length; i++) {
+            if (globMatch(node.globs[i], path, pos, segmentEnd)
+                    && match(node.globNodes[i], path, segmentEnd, endsWithSlash, afterMulti)) {
+                return true;
+            }
+        }
+
+        return node.multi != null && matchMulti(node.multi, path, pos, endsWithSlash);
+    }
+
+    /**
+     * ** 匹配零个或多个目录，依次尝试从之后每个目录开始匹配剩余的模式
+     */
+    private static boolean matchMulti(Node next, String path, int pos, boolean endsWithSlash) {
+
+        int length = path.length();
+
+        while (true) {
+
+            if (match(next, path, pos, endsWithSlash, true)) {
+                return true;
+            }
+
+            if (pos >= length) {
+                return false;
+            }
+
+            int separator = path.indexOf(SEPARATOR, pos);
+            pos = separator < 0 ? length : separator + 1;
+        }
+    }
+
+    /**
+     * 路径已匹配完，剩余的模式是否可以匹配空路径
+     * 剩余的模式只能是 **，或者在没有经过 ** 时只剩一个 *
+     */
+    private static boolean matchEnd(Node node, boolean endsWithSlash, boolean afterMulti) {
+
+        // 与 AntPathMatcher 一致，模式中经过 ** 后不再比较结尾的 /
+        if (afterMulti
+                ? node.terminal || node.terminalWithSlash
+                : endsWithSlash ? node.terminalWithSlash : node.terminal) {
+            return true;
+        }
+
+        // 与 AntPathMatcher 一致，/a/* 可以匹配 /a/，经过 ** 后比较的是最后一个目录，不适用
+        if (endsWithSlash && !afterMulti && node.single != null
+                && (node.single.terminal || node.single.terminalWithSlash)) {
+            return true;
+        }
+
+        return node.multi != null && matchEnd(node.multi, endsWithSlash, true);
+    }
+
+    /**
+     * 单个目录内的通配符匹配，* 匹配任意个字符，? 匹配一个字符
+     */
+    private static boolean globMatch(String glob, String path, int start, int end) {
+
+        int g = 0, p = start;
+        int starIndex = -1, starMatch = start;
+
+        while (p < end) {
+
+            if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == path.charAt(p))) {
+                g++;
+                p++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                starIndex = g++;
+                starMatch = p;
+            } else if (starIndex >= 0) {
+                g = starIndex + 1;
+                p = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+
+        return g == glob.length();
+    }
+
+    /**
+     * 与 String.hashCode 相同的算法计算路径中一段的hash
+     */
+    private static int hash(String path, int start, int end) {
+
+        int hash = 0;
+
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+
+        return hash;
+    }
+
+    private static final class Node {
+
+        private static final Node[] EMPTY_NODES = new Node[0];
+
+        private static final String[] EMPTY_STRINGS = new String[0];
+
+        private Map<String, Node> literalMap = new LinkedHashMap<>();
+
+        private Map<String, Node> globMap = new LinkedHashMap<>();
+
+        /**
+         * 按hash排序的字面量目录
+         */
+        private int[] literalHashes;
+
+        private String[] literals;
+
+        private Node[] literalNodes;
+
+        /**
+         * 含通配符的目录，{name} 已转换为 *
+         */
+        private String[] globs;
+
+        private Node[] globNodes;
+
+        /**
+         * 单独的 *
+         */
+        private Node single;
+
+        /**
+         * 单独的 **
+         */
+        private Node multi;
+
+        /**
+         * 有模式在此结束
+         */
+        private boolean terminal;
+
+        /**
+         * 有以 / 结尾的模式在此结束
+         */
+        private boolean terminalWithSlash;
+
+        private Node child(String segment) {
+
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                return multi == null ? multi = new Node() : multi;
+            }
+
+            if (SINGLE_WILDCARD.equals(segment)) {
+                return single == null ? single = new Node() : single;
+            }
+
+            if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0) {
+                return globMap.computeIfAbsent(segment.replaceAll("\\{[^/}]*}", SINGLE_WILDCARD), key -> new Node());
+            }
+
+            return literalMap.computeIfAbsent(segment, key -> new Node());
+        }
+
+        private Node freeze() {
+
+            List<Map.Entry<String, Node>> literalEntries = new ArrayList<>(literalMap.entrySet());
+            literalEntries.sort(Comparator.comparingInt(entry -> entry.getKey().hashCode()));
+
+            literalHashes = new int[literalEntries.size()];
+            literals = new String[literalEntries.size()];
+            literalNodes = new Node[literalEntries.size()];
+
+            for (int i = 0; i < literalEntries.size(); i++) {
+                literals[i] = literalEntries.get(i).getKey();
+                literalHashes[i] = literals[i].hashCode();
+                literalNodes[i] = literalEntries.get(i).getValue().freeze();
+            }
+
+            globs = globMap.isEmpty() ? EMPTY_STRINGS : globMap.keySet().toArray(new String[0]);
+            globNodes = globMap.isEmpty() ? EMPTY_NODES : globMap.values().toArray(new Node[0]);
+
+            for (Node globNode : globNodes) {
+                globNode.freeze();
+            }
+
+            if (single != null) {
+                single.freeze();
+            }
+
+            if (multi != null) {
+                multi.freeze();
+            }
+
+            literalMap = null;
+            globMap = null;
+
+            return this;
+        }
+
+        private Node findLiteral(String path, int start, int end) {
+
+            if (literals.length == 0) {
+                return null;
+            }
+
+            int hash = hash(path, start, end);
+            int index = Arrays.binarySearch(literalHashes, hash);
+
+            if (index < 0) {
+                return null;
+            }
+
+            // hash相同的字面量相邻，回退到第一个再逐个比较
+            while (index > 0 && literalHashes[index - 1] == hash) {
+                index--;
+            }
+
+            int length = end - start;
+
+            for (; index < literals.length && literalHashes[index] == hash; index++) {
+                if (literals[index].length() == length && path.regionMatches(start, literals[index], 0, length)) {
+                    return literalNodes[index];
+                }
+            }
+
+            return null;
+        }
+    }
+
+}
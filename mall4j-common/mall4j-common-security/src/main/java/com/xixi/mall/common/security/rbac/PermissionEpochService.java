@@ -0,0 +1,94 @@
+package com.xixi.mall.common.security.rbac;
+
+import com.xixi.mall.common.cache.constant.CacheNames;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.xixi.mall.common.core.constant.Constant.VOID;
+
+/**
+ * 用户权限版本
+ * 版本由 系统版本.用户版本 组成，菜单或权限变化时系统版本自增，用户角色变化时用户版本自增，
+ * 缓存的用户权限记录生成时的版本，读取时版本不一致则视为过期，不需要同步清除缓存
+ */
+@Component
+public class PermissionEpochService {
+
+    /**
+     * 用户版本的保留时间，需大于用户权限缓存的时间，否则版本过期归零后可能与旧缓存的版本相同
+     */
+    private static final long USER_EPOCH_RETAIN_DAYS = 7;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取用户权限的当前版本
+     *
+     * @param sysType 系统类型
+     * @param userId  用户id
+     * @return 版本
+     */
+    public String current(Integer sysType, Long userId) {
+
+        List<String> epochs = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(
+                CacheNames.SYS_PERMISSION_EPOCH_KEY + sysType,
+                CacheNames.USER_PERMISSION_EPOCH_KEY + sysType + CacheNames.UNION_KEY + userId
+        ));
+
+        String sysEpoch = epochs == null || epochs.get(0) == null ? "0" : epochs.get(0);
+        String userEpoch = epochs == null || epochs.get(1) == null ? "0" : epochs.get(1);
+
+        return sysEpoch + "." + userEpoch;
+    }
+
+    /**
+     * 用户角色变化，使该用户缓存的权限过期
+     *
+     * @param sysType 系统类型
+     * @param userId  用户id
+     */
+    public void bumpUser(Integer sysType, Long userId) {
+
+        String approvalKey = sysType + CacheNames.UNION_KEY + userId;
+        String epochKey = CacheNames.USER_PERMISSION_EPOCH_KEY + approvalKey;
+
+        stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+
+            stringConnection.incr(epochKey);
+            stringConnection.expire(epochKey, TimeUnit.DAYS.toSeconds(USER_EPOCH_RETAIN_DAYS));
+            // 通知各节点移除本地缓存的用户权限
+            stringConnection.publish(CacheNames.USER_PERMISSIONS_INVALIDATE_CHANNEL, approvalKey);
+
+            return VOID;
+        });
+    }
+
+    /**
+     * 菜单或权限变化，使该系统下全部用户缓存的权限过期
+     *
+     * @param sysType 系统类型
+     */
+    public void bumpSysType(Integer sysType) {
+
+        stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+
+            stringConnection.incr(CacheNames.SYS_PERMISSION_EPOCH_KEY + sysType);
+            stringConnection.publish(CacheNames.USER_PERMISSIONS_INVALIDATE_CHANNEL, String.valueOf(sysType));
+
+            return VOID;
+        });
+    }
+
+}
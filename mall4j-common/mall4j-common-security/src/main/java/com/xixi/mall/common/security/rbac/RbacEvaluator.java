@@ -0,0 +1,297 @@
+package com.xixi.mall.common.security.rbac;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
+import com.xixi.mall.api.rabc.bo.UriPermissionBo;
+import com.xixi.mall.api.rabc.bo.UriPermissionSnapshotBo;
+import com.xixi.mall.api.rabc.bo.UserPermissionBitmapBo;
+import com.xixi.mall.api.rabc.feign.PermissionFeignClient;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.core.utils.BooleanUtil;
+import com.xixi.mall.common.core.webbase.vo.ServerResponse;
+import com.xixi.mall.common.security.config.RbacConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地权限校验
+ * 定时从rbac服务拉取 uri -> 权限 规则快照，按请求方法编译为 精确uri哈希表 + 通配uri列表，
+ * 快照版本未变化时rbac服务不返回规则；规则中的权限为整数id，用户权限为以id为下标的位图，
+ * 校验时只需测试对应的位；用户权限位图缓存在本地，权限变更时通过redis发布订阅失效
+ */
+@Slf4j
+@Component
+public class RbacEvaluator {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private static final int[] EMPTY_IDS = new int[0];
+
+    @Resource
+    private PermissionFeignClient permissionFeignClient;
+
+    @Resource
+    private RbacConfig rbacConfig;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 系统类型 -> 编译后的规则
+     */
+    private final Map<Integer, CompiledRules> rulesMap = new ConcurrentHashMap<>();
+
+    /**
+     * sysType:userId -> 用户拥有的权限位图
+     */
+    private Cache<String, BitSet> userPermissionsCache;
+
+    /**
+     * 上次加载规则失败的时间，rbac服务不可用时避免每个请求都去加载
+     */
+    private volatile long lastLoadFailTime = 0;
+
+    @PostConstruct
+    public void init() {
+
+        userPermissionsCache = Caffeine.newBuilder()
+                .maximumSize(rbacConfig.getUserPermissionsMaximumSize())
+                .expireAfterWrite(rbacConfig.getUserPermissionsTtl(), TimeUnit.SECONDS)
+                .build();
+
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> onInvalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CacheNames.USER_PERMISSIONS_INVALIDATE_CHANNEL)
+        );
+    }
+
+    /**
+     * 消息为 sysType:userId 时移除该用户的权限，只有sysType时移除该系统下全部用户的权限
+     */
+    private void onInvalidate(String approvalKey) {
+
+        if (approvalKey.contains(CacheNames.UNION_KEY)) {
+            userPermissionsCache.invalidate(approvalKey);
+            return;
+        }
+
+        String prefix = approvalKey + CacheNames.UNION_KEY;
+        userPermissionsCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * 校验用户是否有某个uri的权限，没有配置权限的uri不限制访问
+     *
+     * @param userInfoInToken 用户信息
+     * @param uri             uri
+     * @param method          请求方法 1.GET 2.POST 3.PUT 4.DELETE
+     * @return 是否有权限，本地规则或用户权限不可用时返回null
+     */
+    public Boolean check(UserInfoInTokenBo userInfoInToken, String uri, Integer method) {
+
+        if (BooleanUtil.isTrue(userInfoInToken.getIsAdmin())) {
+            return true;
+        }
+
+        CompiledRules rules = getRules(userInfoInToken.getSysType());
+
+        if (rules == null) {
+            return null;
+        }
+
+        int[] permissionIds = rules.match(uri, method);
+
+        if (permissionIds.length == 0) {
+            return true;
+        }
+
+        BitSet userPermissions = getUserPermissions(userInfoInToken);
+
+        if (userPermissions == null) {
+            return null;
+        }
+
+        for (int permissionId : permissionIds) {
+            if (userPermissions.get(permissionId)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 只同步已经使用过的系统类型
+     */
+    @Scheduled(fixedDelayString = "${auth.rbac.sync-interval:10000}")
+    public void sync() {
+
+        if (!rbacConfig.isLocalEnabled()) {
+            return;
+        }
+
+        rulesMap.keySet().forEach(this::load);
+    }
+
+    private CompiledRules getRules(Integer sysType) {
+
+        CompiledRules rules = rulesMap.get(sysType);
+
+        if (rules == null) {
+
+            if (System.currentTimeMillis() - lastLoadFailTime < rbacConfig.getSyncInterval()) {
+                return null;
+            }
+
+            load(sysType);
+            rules = rulesMap.get(sysType);
+        }
+
+        return rules;
+    }
+
+    private synchronized void load(Integer sysType) {
+
+        CompiledRules current = rulesMap.get(sysType);
+
+        try {
+            ServerResponse<UriPermissionSnapshotBo> response = permissionFeignClient
+                    .getUriPermissionSnapshot(sysType, current == null ? null : current.version);
+
+            if (response.unSuccess() || response.getData() == null) {
+                lastLoadFailTime = System.currentTimeMillis();
+                log.error("load uri permission snapshot error: {}", response.getMsg());
+                return;
+            }
+
+            UriPermissionSnapshotBo snapshot = response.getData();
+
+            // 版本未变化
+            if (snapshot.getUriPermissions() == null) {
+                return;
+            }
+
+            // rbac服务尚未分配权限id时无法在本地校验
+            if (snapshot.getUriPermissions().stream().anyMatch(uriPermission ->
+                    uriPermission.getPermission() != null && uriPermission.getPermissionId() == null)) {
+                lastLoadFailTime = System.currentTimeMillis();
+                log.error("uri permission snapshot without permission id, sysType: {}", sysType);
+                return;
+            }
+
+            rulesMap.put(sysType, new CompiledRules(snapshot));
+        } catch (Exception e) {
+            lastLoadFailTime = System.currentTimeMillis();
+            log.error("load uri permission snapshot error: {}", e.getMessage());
+        }
+    }
+
+    private BitSet getUserPermissions(UserInfoInTokenBo userInfoInToken) {
+
+        return userPermissionsCache.get(userInfoInToken.getSysType() + ":" + userInfoInToken.getUserId(), key -> {
+            try {
+                ServerResponse<UserPermissionBitmapBo> response = permissionFeignClient.getUserPermissionBitmap(
+                        userInfoInToken.getUserId(), userInfoInToken.getSysType(), userInfoInToken.getIsAdmin());
+
+                if (response.unSuccess()) {
+                    return null;
+                }
+
+                return response.getData() == null || response.getData().getBitmap() == null
+                        ? new BitSet()
+                        : BitSet.valueOf(response.getData().getBitmap());
+            } catch (Exception e) {
+                log.error("load user permissions error: {}", e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 编译后的规则
+     */
+    private static class CompiledRules {
+
+        private final String version;
+
+        /**
+         * 请求方法 -> 精确uri -> 权限id
+         */
+        private final Map<Integer, Map<String, int[]>> exactRules = new HashMap<>();
+
+        /**
+         * 请求方法 -> 通配uri规则
+         */
+        private final Map<Integer, List<UriPermissionBo>> patternRules = new HashMap<>();
+
+        private CompiledRules(UriPermissionSnapshotBo snapshot) {
+
+            this.version = snapshot.getVersion();
+
+            for (UriPermissionBo uriPermission : snapshot.getUriPermissions()) {
+
+                if (uriPermission.getUri() == null || uriPermission.getPermission() == null) {
+                    continue;
+                }
+
+                if (PATH_MATCHER.isPattern(uriPermission.getUri())) {
+                    patternRules.computeIfAbsent(uriPermission.getMethod(), method -> new ArrayList<>())
+                            .add(uriPermission);
+                } else {
+                    exactRules.computeIfAbsent(uriPermission.getMethod(), method -> new HashMap<>())
+                            .merge(uriPermission.getUri(), new int[]{uriPermission.getPermissionId()}, CompiledRules::concat);
+                }
+            }
+        }
+
+        /**
+         * 获取uri对应的全部权限id
+         *
+         * @param uri    uri
+         * @param method 请求方法
+         * @return 权限id，没有配置权限时为空
+         */
+        private int[] match(String uri, Integer method) {
+
+            Map<String, int[]> exact = exactRules.get(method);
+            List<UriPermissionBo> patterns = patternRules.get(method);
+
+            int[] permissionIds = exact == null ? null : exact.get(uri);
+
+            if (permissionIds == null) {
+                permissionIds = EMPTY_IDS;
+            }
+
+            if (patterns == null) {
+                return permissionIds;
+            }
+
+            for (UriPermissionBo pattern : patterns) {
+                if (PATH_MATCHER.match(pattern.getUri(), uri)) {
+                    permissionIds = concat(permissionIds, new int[]{pattern.getPermissionId()});
+                }
+            }
+
+            return permissionIds;
+        }
+
+        private static int[] concat(int[] a, int[] b) {
+            int[] result = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, result, a.length, b.length);
+            return result;
+        }
+    }
+
+}
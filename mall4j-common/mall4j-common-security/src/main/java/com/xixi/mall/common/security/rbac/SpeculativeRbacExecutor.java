@@ -0,0 +1,208 @@
+package com.xixi.mall.common.security.rbac;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
+import com.xixi.mall.common.security.config.SpeculativeRbacConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 并行权限校验
+ * 记录 token -> 上次解析出的用户信息，token需要远程校验时用该用户信息在独立的有界线程池中提前发起权限校验，
+ * 线程池已满、等待超时或校验异常时返回null，由调用方退回为顺序校验；
+ * 同时记录token校验、权限校验及等待提前校验结果各阶段的耗时
+ */
+@Slf4j
+@Component
+public class SpeculativeRbacExecutor implements MeterBinder, DisposableBean {
+
+    public static final String PHASE_TOKEN = "token";
+
+    public static final String PHASE_RBAC = "rbac";
+
+    public static final String PHASE_SPECULATIVE_WAIT = "speculative_wait";
+
+    private static final String TIMER_NAME = "auth.filter.phase";
+
+    @Resource
+    private SpeculativeRbacConfig speculativeRbacConfig;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * token -> 用户信息，只用于提前发起权限校验
+     */
+    private Cache<String, UserInfoInTokenBo> hintCache;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("auth-speculative-rbac-");
+        threadFactory.setDaemon(true);
+
+        executor = new ThreadPoolExecutor(
+                speculativeRbacConfig.getThreads(),
+                speculativeRbacConfig.getThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(speculativeRbacConfig.getQueueCapacity()),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+
+        hintCache = Caffeine.newBuilder()
+                .maximumSize(speculativeRbacConfig.getHintMaximumSize())
+                .expireAfterWrite(speculativeRbacConfig.getHintTtl(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 是否开启并行权限校验
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return speculativeRbacConfig.isEnabled();
+    }
+
+    /**
+     * 获取token上次解析出的用户信息
+     *
+     * @param accessToken accessToken
+     * @return 用户信息，没有记录时返回null
+     */
+    public UserInfoInTokenBo getHint(String accessToken) {
+        return hintCache.getIfPresent(accessToken);
+    }
+
+    /**
+     * 记录token解析出的用户信息
+     *
+     * @param accessToken     accessToken
+     * @param userInfoInToken 用户信息
+     */
+    public void putHint(String accessToken, UserInfoInTokenBo userInfoInToken) {
+        hintCache.put(accessToken, userInfoInToken);
+    }
+
+    /**
+     * 移除token的用户信息
+     *
+     * @param accessToken accessToken
+     */
+    public void removeHint(String accessToken) {
+        hintCache.invalidate(accessToken);
+    }
+
+    /**
+     * 提前发起的权限校验结果是否可以用于该用户，权限校验只与 用户id、系统类型、是否管理员 有关
+     *
+     * @param hint            提前使用的用户信息
+     * @param userInfoInToken token校验得到的用户信息
+     * @return 是否可用
+     */
+    public static boolean isSameSubject(UserInfoInTokenBo hint, UserInfoInTokenBo userInfoInToken) {
+        return Objects.equals(hint.getUserId(), userInfoInToken.getUserId())
+                && Objects.equals(hint.getSysType(), userInfoInToken.getSysType())
+                && Objects.equals(hint.getIsAdmin(), userInfoInToken.getIsAdmin());
+    }
+
+    /**
+     * 提交权限校验
+     * 校验只使用调用方已取出的值，不传递请求上下文：请求对象不能在其它线程使用，请求结束后还可能被容器回收复用
+     *
+     * @param rbacCheck 权限校验
+     * @return 校验结果，线程池已满时返回null
+     */
+    public Future<Boolean> submit(Supplier<Boolean> rbacCheck) {
+        try {
+            return executor.submit(() -> timed(PHASE_RBAC, rbacCheck));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 等待提前发起的权限校验结果
+     *
+     * @param future 校验结果
+     * @return 是否有权限，等待超时或校验异常时返回null
+     */
+    public Boolean join(Future<Boolean> future) {
+
+        long start = System.nanoTime();
+
+        try {
+            return future.get(speculativeRbacConfig.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("speculative rbac check error: {}", e.getMessage());
+            future.cancel(true);
+            return null;
+        } finally {
+            record(PHASE_SPECULATIVE_WAIT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 执行并记录某个阶段的耗时
+     *
+     * @param phase    阶段
+     * @param supplier 执行内容
+     * @return 执行结果
+     */
+    public <T> T timed(String phase, Supplier<T> supplier) {
+
+        long start = System.nanoTime();
+
+        try {
+            return supplier.get();
+        } finally {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+
+    private void record(String phase, long nanos) {
+
+        MeterRegistry registry = meterRegistry;
+
+        if (registry == null) {
+            return;
+        }
+
+        timers.computeIfAbsent(phase, key -> Timer.builder(TIMER_NAME)
+                .tag("phase", key)
+                .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.xixi.mall.common.security.token;
+
+import cn.hutool.core.util.StrUtil;
+import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
+import com.xixi.mall.common.auth.constant.AuthConstant;
+import com.xixi.mall.common.auth.token.SignedTokenCodec;
+import com.xixi.mall.common.core.utils.Json;
+import com.xixi.mall.common.security.bo.TokenClaimsBo;
+import com.xixi.mall.common.security.config.IdentityConfig;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 已校验用户身份的签名与验签
+ * 编码格式与签名token相同，声明的类型为 identity，签名token不能作为用户身份使用；有效期很短，不需要吊销
+ */
+@Component
+public class IdentityService {
+
+    @Resource
+    private IdentityConfig identityConfig;
+
+    /**
+     * 是否信任请求头中的用户身份
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return identityConfig.isEnabled();
+    }
+
+    /**
+     * 签名用户身份，服务间调用时使用，下游仍需校验权限
+     *
+     * @param userInfoInToken 用户信息
+     * @return 签名后的用户身份，未开启或未配置密钥时返回null
+     */
+    public String sign(UserInfoInTokenBo userInfoInToken) {
+
+        String kid = identityConfig.getCurrentKid();
+        byte[] key = getKey(kid);
+
+        if (!identityConfig.isEnabled() || key == null || userInfoInToken == null) {
+            return null;
+        }
+
+        TokenClaimsBo claims = new TokenClaimsBo();
+        claims.setTyp(AuthConstant.TOKEN_TYPE_IDENTITY);
+        claims.setExp(System.currentTimeMillis() + identityConfig.getTtl());
+        claims.setUserInfoInToken(userInfoInToken);
+
+        return SignedTokenCodec.sign(kid, key, Json.toJsonString(claims).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 校验用户身份
+     *
+     * @param identity 请求头中的用户身份
+     * @return 声明，未开启、签名错误、类型不是用户身份或已过期时返回null
+     */
+    public TokenClaimsBo verify(String identity) {
+
+        if (!identityConfig.isEnabled() || StrUtil.isBlank(identity)) {
+            return null;
+        }
+
+        TokenClaimsBo claims = SignedTokenService.parseClaims(SignedTokenCodec.verify(identity, this::getKey));
+
+        return claims == null || !AuthConstant.TOKEN_TYPE_IDENTITY.equals(claims.getTyp())
+                ? null
+                : claims;
+    }
+
+    private byte[] getKey(String kid) {
+
+        if (StrUtil.isBlank(kid)) {
+            return null;
+        }
+
+        String secret = identityConfig.getKeys().get(kid);
+
+        return secret == null ? null : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
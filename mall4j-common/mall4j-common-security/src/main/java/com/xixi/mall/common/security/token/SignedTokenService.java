@@ -0,0 +1,130 @@
+package com.xixi.mall.common.security.token;
+
+import cn.hutool.core.util.StrUtil;
+import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
+import com.xixi.mall.common.auth.constant.AuthConstant;
+import com.xixi.mall.common.auth.token.SignedTokenCodec;
+import com.xixi.mall.common.core.utils.Json;
+import com.xixi.mall.common.security.bo.TokenClaimsBo;
+import com.xixi.mall.common.security.config.TokenSignConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 签名token的签发与校验
+ * 编码格式见 SignedTokenCodec，声明的类型为 access，用户身份不能作为token使用
+ * 旧的base64 token不会包含"."，以此区分两种token
+ */
+@Slf4j
+@Component
+public class SignedTokenService {
+
+    @Resource
+    private TokenSignConfig tokenSignConfig;
+
+    @Resource
+    private TokenRevocationList tokenRevocationList;
+
+    /**
+     * 是否签发签名token
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return tokenSignConfig.isEnabled();
+    }
+
+    /**
+     * 是否是签名token
+     *
+     * @param token token
+     * @return 是否是签名token
+     */
+    public boolean isSignedToken(String token) {
+        return SignedTokenCodec.isSignedToken(token);
+    }
+
+    /**
+     * 签发token
+     *
+     * @param jti             token唯一id
+     * @param exp             过期时间戳，以毫秒为单位
+     * @param userInfoInToken 用户信息
+     * @return 签名token
+     */
+    public String sign(String jti, long exp, UserInfoInTokenBo userInfoInToken) {
+
+        String kid = tokenSignConfig.getCurrentKid();
+        byte[] key = getKey(kid);
+
+        if (key == null) {
+            throw new IllegalStateException("auth.token.sign.keys not contains current kid: " + kid);
+        }
+
+        TokenClaimsBo claims = new TokenClaimsBo();
+        claims.setTyp(AuthConstant.TOKEN_TYPE_ACCESS);
+        claims.setJti(jti);
+        claims.setExp(exp);
+        claims.setUserInfoInToken(userInfoInToken);
+
+        return SignedTokenCodec.sign(kid, key, Json.toJsonString(claims).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 校验签名token，签名错误、类型不是token、已过期、已吊销都视为无效
+     *
+     * @param token 签名token
+     * @return 声明，无效时返回null
+     */
+    public TokenClaimsBo verify(String token) {
+
+        TokenClaimsBo claims = parseClaims(SignedTokenCodec.verify(token, this::getKey));
+
+        // 增加类型之前签发的token没有类型，在过期前仍然有效
+        if (claims == null
+                || (claims.getTyp() != null && !AuthConstant.TOKEN_TYPE_ACCESS.equals(claims.getTyp()))
+                || tokenRevocationList.isRevoked(claims.getJti())) {
+            return null;
+        }
+
+        return claims;
+    }
+
+    /**
+     * 解析已验签的声明
+     *
+     * @param payload 声明的json
+     * @return 声明，为空、缺少用户信息或已过期时返回null
+     */
+    static TokenClaimsBo parseClaims(byte[] payload) {
+
+        TokenClaimsBo claims = payload == null ? null : Json.parseObject(payload, TokenClaimsBo.class);
+
+        if (claims == null
+                || claims.getExp() == null
+                || claims.getUserInfoInToken() == null
+                || claims.getExp() <= System.currentTimeMillis()) {
+            return null;
+        }
+
+        return claims;
+    }
+
+    private byte[] getKey(String kid) {
+
+        if (StrUtil.isBlank(kid)) {
+            return null;
+        }
+
+        String secret = tokenSignConfig.getKeys().get(kid);
+
+        return Objects.isNull(secret)
+                ? null
+                : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
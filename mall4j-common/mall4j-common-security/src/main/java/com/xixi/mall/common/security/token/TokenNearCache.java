@@ -0,0 +1,167 @@
+package com.xixi.mall.common.security.token;
+
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.security.config.TokenNearCacheConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token -> 用户信息 的本地缓存
+ * 缓存大小有上限，缓存时间不超过token本身的过期时间，
+ * auth服务删除、刷新、更新token时会发布 sysType:uid 到失效频道，各节点收到后移除该用户的全部缓存
+ */
+@Slf4j
+@Component
+public class TokenNearCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "token_near_cache";
+
+    @Resource
+    private TokenNearCacheConfig tokenNearCacheConfig;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private Cache<String, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+
+        cache = Caffeine.newBuilder()
+                .maximumSize(tokenNearCacheConfig.getMaximumSize())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(entry.expiresAt - System.currentTimeMillis(), 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> onInvalidate(message),
+                new ChannelTopic(CacheNames.TOKEN_INVALIDATE_CHANNEL)
+        );
+    }
+
+    /**
+     * 获取缓存的用户信息
+     *
+     * @param accessToken 前端传入的accessToken
+     * @return 用户信息，未命中返回null
+     */
+    public UserInfoInTokenBo get(String accessToken) {
+
+        if (!tokenNearCacheConfig.isEnabled()) {
+            return null;
+        }
+
+        Entry entry = cache.getIfPresent(accessToken);
+        return entry == null ? null : entry.userInfoInToken;
+    }
+
+    /**
+     * 缓存用户信息
+     *
+     * @param accessToken     前端传入的accessToken
+     * @param userInfoInToken 用户信息
+     * @param tokenExpiresAt  token的过期时间戳，未知时传null
+     */
+    public void put(String accessToken, UserInfoInTokenBo userInfoInToken, Long tokenExpiresAt) {
+
+        if (!tokenNearCacheConfig.isEnabled()) {
+            return;
+        }
+
+        long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(tokenNearCacheConfig.getTtl());
+
+        if (tokenExpiresAt != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiresAt);
+        }
+
+        cache.put(accessToken, new Entry(userInfoInToken, expiresAt));
+    }
+
+    /**
+     * 移除该用户在本节点缓存的全部token
+     *
+     * @param sysType 系统类型
+     * @param uid     uid
+     */
+    public void invalidate(Integer sysType, Long uid) {
+        cache.asMap().values().removeIf(entry ->
+                Objects.equals(entry.userInfoInToken.getSysType(), sysType)
+                        && (uid == null || Objects.equals(entry.userInfoInToken.getUid(), uid))
+        );
+    }
+
+    private void onInvalidate(Message message) {
+
+        String approvalKey = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        try {
+            String[] sysTypeAndUid = approvalKey.split(StrUtil.COLON);
+            invalidate(Integer.valueOf(sysTypeAndUid[0]),
+                    sysTypeAndUid.length > 1 ? Long.valueOf(sysTypeAndUid[1]) : null);
+        } catch (NumberFormatException e) {
+            log.error("invalid token invalidate message: {}", approvalKey);
+        }
+    }
+
+    /**
+     * 命中率，用于评估缓存大小
+     *
+     * @return 命中率
+     */
+    public double hitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    private static class Entry {
+
+        private final UserInfoInTokenBo userInfoInToken;
+
+        /**
+         * 缓存过期时间戳
+         */
+        private final long expiresAt;
+
+        private Entry(UserInfoInTokenBo userInfoInToken, long expiresAt) {
+            this.userInfoInToken = userInfoInToken;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
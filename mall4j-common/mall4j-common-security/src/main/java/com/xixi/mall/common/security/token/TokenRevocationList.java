@@ -0,0 +1,129 @@
+package com.xixi.mall.common.security.token;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.security.config.TokenSignConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.xixi.mall.common.core.constant.Constant.VOID;
+
+/**
+ * 签名token吊销列表
+ * 吊销记录保存在redis的zset中，member为 jti:过期时间戳，score为吊销时间戳
+ * 每个节点定时增量拉取新的吊销记录保存在本地，校验token时只查本地内存
+ * 只要还有验签密钥就持续吊销与同步，关闭签发后已签发的签名token在过期前仍需吊销
+ */
+@Slf4j
+@Component
+public class TokenRevocationList {
+
+    /**
+     * 增量拉取时往前多拉一段时间，避免节点间时钟误差导致漏拉
+     */
+    private static final long SYNC_OVERLAP_MILLIS = 10000;
+
+    /**
+     * redis中吊销记录的保留时间，需大于token的最长有效期
+     */
+    private static final long REVOKED_RETAIN_MILLIS = 24 * 3600 * 1000L;
+
+    /**
+     * jti -> 过期时间戳，过期后token本身已失效，可以从吊销列表中移除
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private volatile long lastSyncTime = 0;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TokenSignConfig tokenSignConfig;
+
+    /**
+     * token是否已被吊销
+     *
+     * @param jti token唯一id
+     * @return 是否已被吊销
+     */
+    public boolean isRevoked(String jti) {
+        return StrUtil.isBlank(jti) || revokedTokens.containsKey(jti);
+    }
+
+    /**
+     * 吊销token
+     *
+     * @param jtis token唯一id
+     * @param exp  token的过期时间戳，不确定时传入该类token的最长过期时间即可
+     */
+    public void revoke(Collection<String> jtis, long exp) {
+
+        if (!tokenSignConfig.isVerifiable() || CollUtil.isEmpty(jtis)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+
+            for (String jti : jtis) {
+                stringConnection.zAdd(CacheNames.REVOKED_ACCESS, now, jti + StrUtil.COLON + exp);
+                revokedTokens.put(jti, exp);
+            }
+
+            // 移除很早之前的吊销记录，它们对应的token都已经过期了
+            stringConnection.zRemRangeByScore(CacheNames.REVOKED_ACCESS, 0, now - REVOKED_RETAIN_MILLIS);
+
+            return VOID;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token.sign.revocation-sync-interval:5000}")
+    public void sync() {
+
+        if (!tokenSignConfig.isVerifiable()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        try {
+            Set<ZSetOperations.TypedTuple<String>> revokedSet = stringRedisTemplate.opsForZSet()
+                    .rangeByScoreWithScores(CacheNames.REVOKED_ACCESS, lastSyncTime - SYNC_OVERLAP_MILLIS, Double.POSITIVE_INFINITY);
+
+            if (CollUtil.isNotEmpty(revokedSet)) {
+                for (ZSetOperations.TypedTuple<String> revoked : revokedSet) {
+
+                    String member = revoked.getValue();
+                    int index = member == null ? -1 : member.lastIndexOf(StrUtil.COLON);
+
+                    if (index > 0) {
+                        revokedTokens.put(member.substring(0, index), Long.parseLong(member.substring(index + 1)));
+                    }
+                }
+            }
+
+            lastSyncTime = now;
+        } catch (Exception e) {
+            log.error("sync revoked token error: {}", e.getMessage());
+        }
+
+        revokedTokens.values().removeIf(exp -> exp <= now);
+    }
+
+}
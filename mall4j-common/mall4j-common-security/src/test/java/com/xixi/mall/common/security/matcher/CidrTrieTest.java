@@ -0,0 +1,194 @@
+package com.xixi.mall.common.security.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * feign内部请求的ip白名单
+ */
+class CidrTrieTest {
+
+    @Test
+    void zeroPrefixMatchesWholeFamily() {
+
+        CidrTrie ipv4 = compile("0.0.0.0/0");
+
+        assertTrue(ipv4.contains("0.0.0.0"));
+        assertTrue(ipv4.contains("10.1.2.3"));
+        assertTrue(ipv4.contains("255.255.255.255"));
+        assertFalse(ipv4.contains("::1"));
+
+        CidrTrie ipv6 = compile("::/0");
+
+        assertTrue(ipv6.contains("::"));
+        assertTrue(ipv6.contains("fd00::1"));
+        assertTrue(ipv6.contains("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(ipv6.contains("10.1.2.3"));
+    }
+
+    @Test
+    void fullPrefixMatchesSingleAddress() {
+
+        CidrTrie trie = compile("192.168.1.10/32", "2001:db8::10/128");
+
+        assertTrue(trie.contains("192.168.1.10"));
+        assertFalse(trie.contains("192.168.1.11"));
+        assertFalse(trie.contains("192.168.1.9"));
+
+        assertTrue(trie.contains("2001:db8::10"));
+        assertTrue(trie.contains("2001:0db8:0000:0000:0000:0000:0000:0010"));
+        assertFalse(trie.contains("2001:db8::11"));
+        assertFalse(trie.contains("2001:db8::f"));
+    }
+
+    @Test
+    void addressWithoutPrefixIsSingleAddress() {
+
+        CidrTrie trie = compile("10.0.0.1", "::1");
+
+        assertTrue(trie.contains("10.0.0.1"));
+        assertFalse(trie.contains("10.0.0.2"));
+        assertTrue(trie.contains("::1"));
+        assertFalse(trie.contains("::2"));
+    }
+
+    @Test
+    void byteAlignedPrefixMatchesRange() {
+
+        CidrTrie trie = compile("172.16.0.0/16", "fd00::/8");
+
+        assertTrue(trie.contains("172.16.0.0"));
+        assertTrue(trie.contains("172.16.255.255"));
+        assertFalse(trie.contains("172.15.255.255"));
+        assertFalse(trie.contains("172.17.0.0"));
+
+        assertTrue(trie.contains("fd00::"));
+        assertTrue(trie.contains("fdff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(trie.contains("fcff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(trie.contains("fe00::"));
+    }
+
+    @Test
+    void unalignedPrefixMatchesRange() {
+
+        // 10.0.0.64 - 10.0.0.127
+        CidrTrie ipv4 = compile("10.0.0.64/26");
+
+        assertTrue(ipv4.contains("10.0.0.64"));
+        assertTrue(ipv4.contains("10.0.0.127"));
+        assertFalse(ipv4.contains("10.0.0.63"));
+        assertFalse(ipv4.contains("10.0.0.128"));
+
+        // 172.16.0.0 - 172.31.255.255
+        CidrTrie privateRange = compile("172.16.0.0/12");
+
+        assertTrue(privateRange.contains("172.16.0.0"));
+        assertTrue(privateRange.contains("172.31.255.255"));
+        assertFalse(privateRange.contains("172.15.255.255"));
+        assertFalse(privateRange.contains("172.32.0.0"));
+
+        // 主机位不为0时按网段处理
+        assertTrue(compile("10.0.0.100/26").contains("10.0.0.64"));
+
+        // fc00:: - fdff:ffff:...
+        CidrTrie ipv6 = compile("fc00::/7");
+
+        assertTrue(ipv6.contains("fc00::"));
+        assertTrue(ipv6.contains("fdff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(ipv6.contains("fbff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(ipv6.contains("fe00::"));
+
+        // 2001:db8:0:8000:: - 2001:db8:0:ffff:ffff:...
+        CidrTrie ipv6Unaligned = compile("2001:db8:0:8000::/49");
+
+        assertTrue(ipv6Unaligned.contains("2001:db8:0:8000::"));
+        assertTrue(ipv6Unaligned.contains("2001:db8:0:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(ipv6Unaligned.contains("2001:db8:0:7fff:ffff:ffff:ffff:ffff"));
+        assertFalse(ipv6Unaligned.contains("2001:db8:1::"));
+    }
+
+    @Test
+    void ipv4MappedIpv6MatchesIpv4() {
+
+        CidrTrie trie = compile("10.0.0.0/8");
+
+        assertTrue(trie.contains("::ffff:10.1.2.3"));
+        assertTrue(trie.contains("::ffff:a01:203"));
+        assertFalse(trie.contains("::ffff:11.0.0.0"));
+        assertFalse(trie.contains("::ffff:9.255.255.255"));
+
+        // 白名单中的ipv4映射地址，前缀长度按ipv6计算
+        CidrTrie mapped = compile("::ffff:192.168.0.0/112", "::ffff:10.0.0.1");
+
+        assertTrue(mapped.contains("192.168.3.4"));
+        assertTrue(mapped.contains("::ffff:192.168.3.4"));
+        assertFalse(mapped.contains("192.169.0.0"));
+        assertTrue(mapped.contains("10.0.0.1"));
+        assertFalse(mapped.contains("10.0.0.2"));
+    }
+
+    @Test
+    void malformedEntriesAreIgnored() {
+
+        CidrTrie trie = compile(
+                "", "  ", null, "abc", "localhost", "10.0.0", "10.0.0.0.0", "256.0.0.1", "10..0.1",
+                "10.0.0.0/", "10.0.0.0/33", "10.0.0.0/-1", "10.0.0.0/+8", "10.0.0.0/a", "/8",
+                "::/129", "1:2", "fd00:::1", "g::1", "::ffff:10.0.0.0/95", "10.0.0.1%eth0", "[::1]"
+        );
+
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.contains("10.0.0.1"));
+        assertFalse(trie.contains("::1"));
+
+        CidrTrie mixed = compile(" 10.0.0.0/8 ", "10.0.0.0/33", "not-an-ip");
+
+        assertFalse(mixed.isEmpty());
+        assertTrue(mixed.contains("10.255.255.255"));
+        assertFalse(mixed.contains("11.0.0.0"));
+    }
+
+    @Test
+    void malformedAddressesNeverMatch() {
+
+        CidrTrie trie = compile("0.0.0.0/0", "::/0");
+
+        assertFalse(trie.contains(null));
+        assertFalse(trie.contains(""));
+        assertFalse(trie.contains("localhost"));
+        assertFalse(trie.contains("10.0.0"));
+        assertFalse(trie.contains("256.0.0.1"));
+        assertFalse(trie.contains("1:2"));
+        assertFalse(trie.contains("10.0.0.1/8"));
+    }
+
+    @Test
+    void emptyAllowListMatchesNothing() {
+
+        assertTrue(CidrTrie.compile(null).isEmpty());
+        assertTrue(CidrTrie.compile(Collections.emptyList()).isEmpty());
+        assertFalse(CidrTrie.compile(null).contains("127.0.0.1"));
+    }
+
+    @Test
+    void widerRangeCoversNarrowerOne() {
+
+        CidrTrie narrowFirst = compile("10.1.0.0/16", "10.0.0.0/8");
+        CidrTrie wideFirst = compile("10.0.0.0/8", "10.1.0.0/16");
+
+        for (CidrTrie trie : Arrays.asList(narrowFirst, wideFirst)) {
+            assertTrue(trie.contains("10.1.2.3"));
+            assertTrue(trie.contains("10.2.0.0"));
+            assertFalse(trie.contains("11.0.0.0"));
+        }
+    }
+
+    private static CidrTrie compile(String... cidrs) {
+        return CidrTrie.compile(Arrays.asList(cidrs));
+    }
+
+}
@@ -0,0 +1,251 @@
+package com.xixi.mall.common.security.matcher;
+
+import com.xixi.mall.common.security.adapter.DefaultAuthConfigAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PathPatternTrie 与原先 AuthFilter 逐个 AntPathMatcher.match 的对比
+ * 模式为默认的排除路径加上按固定种子生成的模式，深度2到5层，混合 * ** {var} 及字面量
+ * 运行 main 方法，或 mvn test-compile 后以 org.openjdk.jmh.Main 运行，加 -prof gc 可查看每次匹配分配的内存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathPatternTrieBenchmark {
+
+    private static final long SEED = 20201018L;
+
+    /**
+     * 匹配的路径数，需要是2的幂
+     */
+    private static final int PATH_COUNT = 1024;
+
+    private static final String[] MODULES = {
+            "ua", "p", "m", "mp", "admin", "shop", "open", "api", "mall4j", "apis", "platform", "multishop"
+    };
+
+    private static final String[] RESOURCES = {
+            "product", "category", "brand", "attr", "spu", "sku", "order", "order_item", "refund", "cart",
+            "user", "user_addr", "shop_detail", "shop_user", "notice", "hot_search", "index_img", "coupon",
+            "seckill", "group_buy", "delivery", "transport", "area", "pay", "wallet", "comment", "favorite",
+            "message", "sys_menu", "sys_user", "sys_role", "sys_config", "attach_file", "captcha", "search",
+            "live", "distribution", "finance", "statistics", "webhook"
+    };
+
+    private static final String[] ACTIONS = {
+            "page", "list", "info", "detail", "save", "update", "delete", "export", "import", "count",
+            "tree", "status", "audit", "submit", "cancel", "confirm", "callback", "notify", "download", "upload"
+    };
+
+    private static final String[] VARS = {"{id}", "{spuId}", "{orderId}", "{shopId}", "{userId}", "{type}"};
+
+    private static final String[] EXTENSIONS = {".json", ".html", ".jpg", ".css", ".js"};
+
+    /**
+     * 排除路径的数量，含默认的排除路径
+     */
+    @Param({"100", "300", "1000"})
+    private int patternCount;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private List<String> patterns;
+
+    private String[] paths;
+
+    private PathPatternTrie trie;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(SEED);
+
+        patterns = generatePatterns(random, patternCount);
+        paths = generatePaths(random, patterns);
+        trie = PathPatternTrie.compile(patterns);
+
+        int matched = 0;
+
+        // 两种匹配的结果必须一致，否则对比没有意义
+        for (String path : paths) {
+
+            boolean trieMatched = trie.matches(path);
+
+            if (trieMatched != antMatches(path)) {
+                throw new IllegalStateException("match mismatch: " + path);
+            }
+
+            if (trieMatched) {
+                matched++;
+            }
+        }
+
+        // 大部分请求都需要授权，生成的路径中应有相当一部分不匹配
+        if (matched == 0 || matched == paths.length) {
+            throw new IllegalStateException("unbalanced paths, matched: " + matched);
+        }
+    }
+
+    @Benchmark
+    public boolean trieMatch() {
+        return trie.matches(nextPath());
+    }
+
+    @Benchmark
+    public boolean antMatch() {
+        return antMatches(nextPath());
+    }
+
+    private String nextPath() {
+        return paths[index++ & (PATH_COUNT - 1)];
+    }
+
+    /**
+     * 原先 AuthFilter 的匹配方式
+     */
+    private boolean antMatches(String path) {
+
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 默认的排除路径，再加上生成的模式
+     */
+    private static List<String> generatePatterns(Random random, int count) {
+
+        Set<String> patterns = new LinkedHashSet<>(new DefaultAuthConfigAdapter().excludePathPatterns(
+                "/swagger-ui.html", "/swagger-resources/**", "/webjars/**", "/doc.html"));
+
+        while (patterns.size() < count) {
+
+            StringBuilder pattern = new StringBuilder()
+                    .append('/').append(pick(random, MODULES))
+                    .append('/').append(pick(random, RESOURCES));
+
+            int kind = random.nextInt(10);
+
+            if (kind < 3) {
+                // /ua/product/page
+                pattern.append('/').append(pick(random, ACTIONS));
+            } else if (kind < 5) {
+                // /ua/product/{id}/detail
+                pattern.append('/').append(pick(random, VARS)).append('/').append(pick(random, ACTIONS));
+            } else if (kind < 6) {
+                // /ua/product/*
+                pattern.append("/*");
+            } else if (kind < 7) {
+                // /ua/product/**
+                pattern.append("/**");
+            } else if (kind < 8) {
+                // /ua/product/*/sku/list
+                pattern.append("/*/").append(pick(random, RESOURCES)).append('/').append(pick(random, ACTIONS));
+            } else if (kind < 9) {
+                // /ua/product/**/export
+                pattern.append("/**/").append(pick(random, ACTIONS));
+            } else {
+                // /ua/product/*.json
+                pattern.append("/*").append(pick(random, EXTENSIONS));
+            }
+
+            patterns.add(pattern.toString());
+        }
+
+        return new ArrayList<>(patterns);
+    }
+
+    /**
+     * 一半由模式实例化得到，一半为同样词汇组成的随机路径，大多不匹配
+     */
+    private static String[] generatePaths(Random random, List<String> patterns) {
+
+        String[] paths = new String[PATH_COUNT];
+
+        for (int i = 0; i < PATH_COUNT; i++) {
+            paths[i] = i % 2 == 0
+                    ? instantiate(random, patterns.get(random.nextInt(patterns.size())))
+                    : randomPath(random);
+        }
+
+        return paths;
+    }
+
+    private static String instantiate(Random random, String pattern) {
+
+        StringBuilder path = new StringBuilder();
+
+        for (String segment : pattern.split("/")) {
+
+            if (segment.isEmpty()) {
+                continue;
+            }
+
+            if ("**".equals(segment)) {
+                for (int i = random.nextInt(3); i > 0; i--) {
+                    path.append('/').append(pick(random, ACTIONS));
+                }
+            } else if (segment.startsWith("{")) {
+                path.append('/').append(random.nextInt(100000));
+            } else {
+                path.append('/').append(segment.replace("*", pick(random, RESOURCES)));
+            }
+        }
+
+        return path.length() == 0 ? "/" : path.toString();
+    }
+
+    private static String randomPath(Random random) {
+
+        StringBuilder path = new StringBuilder()
+                .append('/').append(pick(random, MODULES))
+                .append('/').append(pick(random, RESOURCES));
+
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            path.append('/').append(random.nextBoolean() ? pick(random, ACTIONS) : String.valueOf(random.nextInt(100000)));
+        }
+
+        return path.toString();
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PathPatternTrieBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.xixi.mall.common.security.matcher;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * PathPatternTrie 与 AntPathMatcher 的匹配结果必须一致
+ */
+class PathPatternTrieTest {
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/a", "/a/", "/a/*", "/a/**", "/a/**/", "/a/*/", "/a/b", "/a/b/**", "/a/**/b", "/a/**/b/**",
+            "/**", "/*", "/", "/**/c", "/*/c", "/**/*.js", "/a/*.html", "/a/b?", "/a/?b",
+            "/a/{id}", "/a/{id}/b", "/a/x{id}", "/a/{id}.json", "/a/{a}{b}", "/{x}/**",
+            "/ua/captcha.jpg", "/apis/**", "/swagger-ui.html", "/webjars/**", "/feign/insider/**",
+            "/a/{id:\\d+}", "a/b", "a/**"
+    );
+
+    private static final List<String> PATHS = Arrays.asList(
+            "", "/", "//", "/a", "/a/", "/a//", "/a/b", "/a/b/", "/a//b", "/a/b/c", "/a/b/c/",
+            "/a/x", "/a/x/", "/a/x/b", "/a/x/y/b", "/a/x/y/b/c", "/a/x1", "/a/1.json", "/a/.json",
+            "/a/index.html", "/a/b1", "/a/1b", "/a/bb", "/a/123", "/a/12x", "/c", "/x/c", "/x/y/c",
+            "/js/app.js", "/app.js", "/ua/captcha.jpg", "/ua/captcha.jpgx", "/apis", "/apis/", "/apis/v1",
+            "/swagger-ui.html", "/webjars/x/y.css", "/feign/insider/token/check", "/b", "/b/", "a", "a/b"
+    );
+
+    private static final String[] SEGMENTS = {"a", "b", "c", "ab", "*", "**", "?", "a*", "*b", "{id}", "x{id}", ""};
+
+    private static final String[] PATH_SEGMENTS = {"a", "b", "c", "ab", "ba", "abc", "x1", "", "aa", "b.js"};
+
+    @Test
+    void matchesSinglePatternLikeAntPathMatcher() {
+        for (String pattern : PATTERNS) {
+            PathPatternTrie trie = PathPatternTrie.compile(Collections.singletonList(pattern));
+            for (String path : PATHS) {
+                assertEquals(MATCHER.match(pattern, path), trie.matches(path), pattern + " vs " + path);
+            }
+        }
+    }
+
+    @Test
+    void matchesAnyPatternLikeAntPathMatcher() {
+
+        PathPatternTrie trie = PathPatternTrie.compile(PATTERNS);
+
+        for (String path : PATHS) {
+            assertEquals(PATTERNS.stream().anyMatch(pattern -> MATCHER.match(pattern, path)), trie.matches(path), path);
+        }
+    }
+
+    @Test
+    void matchesRandomPatternsLikeAntPathMatcher() {
+
+        Random random = new Random(20201018L);
+
+        for (int i = 0; i < 20000; i++) {
+
+            List<String> patterns = new ArrayList<>();
+
+            for (int j = random.nextInt(3) + 1; j > 0; j--) {
+                patterns.add(randomPath(random, SEGMENTS));
+            }
+
+            PathPatternTrie trie = PathPatternTrie.compile(patterns);
+
+            for (int j = 0; j < 10; j++) {
+                String path = randomPath(random, PATH_SEGMENTS);
+                assertEquals(patterns.stream().anyMatch(pattern -> MATCHER.match(pattern, path)), trie.matches(path),
+                        patterns + " vs " + path);
+            }
+        }
+    }
+
+    @Test
+    void nullAndEmptyNeverMatch() {
+        assertEquals(false, PathPatternTrie.compile(null).matches("/a"));
+        assertEquals(false, PathPatternTrie.compile(Collections.singletonList("/**")).matches(null));
+    }
+
+    private static String randomPath(Random random, String[] segments) {
+
+        StringBuilder path = new StringBuilder();
+
+        for (int i = random.nextInt(4) + 1; i > 0; i--) {
+            path.append('/').append(segments[random.nextInt(segments.length)]);
+        }
+
+        if (random.nextInt(4) == 0) {
+            path.append('/');
+        }
+
+        return path.toString();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.xixi.mall.gateway.auth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xixi.mall.common.auth.constant.AuthConstant;
+import com.xixi.mall.common.auth.token.SignedTokenCodec;
+import com.xixi.mall.gateway.config.IdentityConfig;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 签名用户身份，编码与 mall4j-common-security 中 IdentityService 共用 SignedTokenCodec，
+ * payload为 {"typ":"identity","exp":过期时间戳,"userInfoInToken":用户信息,"rbacChecked":是否已确定有权限} 的json
+ */
+@Component
+public class IdentitySigner {
+
+    private final IdentityConfig identityConfig;
+
+    private final ObjectMapper objectMapper;
+
+    public IdentitySigner(IdentityConfig identityConfig, ObjectMapper objectMapper) {
+        this.identityConfig = identityConfig;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 签名用户身份
+     *
+     * @param userInfoInToken 用户信息
+     * @param rbacChecked     是否已确定该用户有请求路径的权限，为true时下游不再校验权限
+     * @return 签名后的用户身份，未配置密钥时返回null
+     */
+    public String sign(ObjectNode userInfoInToken, boolean rbacChecked) {
+
+        String kid = identityConfig.getCurrentKid();
+        String secret = kid == null ? null : identityConfig.getKeys().get(kid);
+
+        if (secret == null) {
+            return null;
+        }
+
+        ObjectNode claims = objectMapper.createObjectNode();
+        claims.put(SignedTokenCodec.CLAIM_TYPE, AuthConstant.TOKEN_TYPE_IDENTITY);
+        claims.put("exp", System.currentTimeMillis() + identityConfig.getTtl());
+        claims.set("userInfoInToken", userInfoInToken);
+        claims.put("rbacChecked", rbacChecked);
+
+        try {
+            return SignedTokenCodec.sign(kid, secret.getBytes(StandardCharsets.UTF_8),
+                    objectMapper.writeValueAsBytes(claims));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+}
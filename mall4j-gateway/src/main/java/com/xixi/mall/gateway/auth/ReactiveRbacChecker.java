@@ -0,0 +1,299 @@
+package com.xixi.mall.gateway.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xixi.mall.common.auth.constant.AuthKeys;
+import com.xixi.mall.common.auth.util.TypedJsonUtil;
+import com.xixi.mall.gateway.config.GatewayAuthConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 网关的用户权限校验
+ * 只读取rbac服务已经缓存在redis中的 uri权限规则快照 与 用户权限位图，缓存不存在或权限版本不一致时无法确定，
+ * 交给下游AuthFilter校验
+ */
+@Component
+public class ReactiveRbacChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveRbacChecker.class);
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    /**
+     * @Cacheable 的key为 cacheName::key
+     */
+    private static final String URI_PERMISSION_KEY = AuthKeys.URI_PERMISSION_KEY + AuthKeys.UNION;
+
+    private static final String USER_PERMISSION_BITMAP_KEY = AuthKeys.USER_PERMISSION_BITMAP_KEY + AuthKeys.UNION;
+
+    /**
+     * 需要校验权限的系统类型，与 SysTypeEnum 一致：1.商家端 2.平台端
+     */
+    private static final int MULTISHOP = 1;
+
+    private static final int PLATFORM = 2;
+
+    private static final int[] EMPTY_IDS = new int[0];
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final GatewayAuthConfig gatewayAuthConfig;
+
+    /**
+     * 系统类型 -> 编译后的规则
+     */
+    private final Map<Integer, CompiledRules> rulesMap = new ConcurrentHashMap<>();
+
+    public ReactiveRbacChecker(ReactiveStringRedisTemplate reactiveStringRedisTemplate,
+                               ObjectMapper objectMapper,
+                               GatewayAuthConfig gatewayAuthConfig) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.gatewayAuthConfig = gatewayAuthConfig;
+    }
+
+    /**
+     * 校验用户是否有某个uri的权限，没有配置权限的uri不限制访问
+     *
+     * @param userInfoInToken 用户信息
+     * @param uri             转发后的uri
+     * @param httpMethod      请求方法
+     * @return 是否有权限，无法确定时为空
+     */
+    public Mono<Boolean> check(ObjectNode userInfoInToken, String uri, HttpMethod httpMethod) {
+
+        int sysType = userInfoInToken.path("sysType").asInt(-1);
+
+        if (sysType != MULTISHOP && sysType != PLATFORM) {
+            return Mono.just(true);
+        }
+
+        if (userInfoInToken.path("isAdmin").asInt(0) == 1) {
+            return Mono.just(true);
+        }
+
+        Integer method = getMethod(httpMethod);
+        JsonNode userId = userInfoInToken.get("userId");
+
+        if (method == null || userId == null || !userId.canConvertToLong()) {
+            return Mono.empty();
+        }
+
+        return getRules(sysType).flatMap(rules -> {
+
+            int[] permissionIds = rules.match(uri, method);
+
+            if (permissionIds.length == 0) {
+                return Mono.just(true);
+            }
+
+            return getUserPermissions(sysType, userId.asLong()).map(userPermissions -> {
+
+                for (int permissionId : permissionIds) {
+                    if (userPermissions.get(permissionId)) {
+                        return true;
+                    }
+                }
+
+                return false;
+            });
+        }).onErrorResume(e -> {
+            log.error("check permission error: {}", e.getMessage());
+            return Mono.empty();
+        });
+    }
+
+    private Mono<CompiledRules> getRules(int sysType) {
+
+        CompiledRules current = rulesMap.get(sysType);
+
+        if (current != null && System.currentTimeMillis() - current.loadTime < gatewayAuthConfig.getRbacSyncInterval()) {
+            return Mono.just(current);
+        }
+
+        return reactiveStringRedisTemplate.opsForValue().get(URI_PERMISSION_KEY + sysType)
+                .flatMap(json -> {
+
+                    CompiledRules rules = compile(json);
+
+                    if (rules == null) {
+                        return Mono.empty();
+                    }
+
+                    rulesMap.put(sysType, rules);
+                    return Mono.just(rules);
+                });
+    }
+
+    private CompiledRules compile(String json) {
+        try {
+            JsonNode snapshot = TypedJsonUtil.readUntyped(objectMapper, json);
+            JsonNode uriPermissions = snapshot.get("uriPermissions");
+
+            if (uriPermissions == null || !uriPermissions.isArray()) {
+                return null;
+            }
+
+            CompiledRules rules = new CompiledRules();
+
+            for (JsonNode uriPermission : uriPermissions) {
+
+                JsonNode uri = uriPermission.get("uri");
+                JsonNode permissionId = uriPermission.get("permissionId");
+
+                if (uri == null || uri.isNull() || uriPermission.path("permission").isNull()) {
+                    continue;
+                }
+
+                // rbac服务尚未分配权限id
+                if (permissionId == null || !permissionId.canConvertToInt()) {
+                    return null;
+                }
+
+                int method = uriPermission.path("method").asInt();
+
+                if (PATH_MATCHER.isPattern(uri.asText())) {
+                    rules.patternRules.computeIfAbsent(method, key -> new ArrayList<>())
+                            .add(new PatternRule(uri.asText(), permissionId.asInt()));
+                } else {
+                    rules.exactRules.computeIfAbsent(method, key -> new HashMap<>())
+                            .merge(uri.asText(), new int[]{permissionId.asInt()}, ReactiveRbacChecker::concat);
+                }
+            }
+
+            return rules;
+        } catch (IOException e) {
+            log.error("parse uri permission snapshot error: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Mono<BitSet> getUserPermissions(int sysType, long userId) {
+
+        String approvalKey = sysType + ":" + userId;
+
+        return reactiveStringRedisTemplate.opsForValue().multiGet(Arrays.asList(
+                USER_PERMISSION_BITMAP_KEY + approvalKey,
+                AuthKeys.SYS_PERMISSION_EPOCH_KEY + sysType,
+                AuthKeys.USER_PERMISSION_EPOCH_KEY + approvalKey
+        )).flatMap(values -> {
+
+            if (values.get(0) == null) {
+                return Mono.empty();
+            }
+
+            String epoch = (values.get(1) == null ? "0" : values.get(1))
+                    + "." + (values.get(2) == null ? "0" : values.get(2));
+
+            try {
+                JsonNode bitmap = TypedJsonUtil.readUntyped(objectMapper, values.get(0));
+
+                // 版本不一致说明权限已变化，等待rbac服务重新生成
+                if (!epoch.equals(bitmap.path("epoch").asText())) {
+                    return Mono.empty();
+                }
+
+                return Mono.just(BitSet.valueOf(bitmap.path("bitmap").binaryValue()));
+            } catch (IOException e) {
+                return Mono.empty();
+            }
+        });
+    }
+
+    /**
+     * 与 HttpMethodEnum 一致：1.GET 2.POST 3.PUT 4.DELETE
+     */
+    private static Integer getMethod(HttpMethod httpMethod) {
+
+        if (httpMethod == null) {
+            return null;
+        }
+
+        switch (httpMethod) {
+            case GET:
+                return 1;
+            case POST:
+                return 2;
+            case PUT:
+                return 3;
+            case DELETE:
+                return 4;
+            default:
+                return null;
+        }
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * 编译后的规则
+     */
+    private static class CompiledRules {
+
+        private final long loadTime = System.currentTimeMillis();
+
+        /**
+         * 请求方法 -> 精确uri -> 权限id
+         */
+        private final Map<Integer, Map<String, int[]>> exactRules = new HashMap<>();
+
+        /**
+         * 请求方法 -> 通配uri规则
+         */
+        private final Map<Integer, List<PatternRule>> patternRules = new HashMap<>();
+
+        private int[] match(String uri, int method) {
+
+            Map<String, int[]> exact = exactRules.get(method);
+            List<PatternRule> patterns = patternRules.get(method);
+
+            int[] permissionIds = exact == null ? null : exact.get(uri);
+
+            if (permissionIds == null) {
+                permissionIds = EMPTY_IDS;
+            }
+
+            if (patterns == null) {
+                return permissionIds;
+            }
+
+            for (PatternRule pattern : patterns) {
+                if (PATH_MATCHER.match(pattern.uri, uri)) {
+                    permissionIds = concat(permissionIds, new int[]{pattern.permissionId});
+                }
+            }
+
+            return permissionIds;
+        }
+    }
+
+    private static class PatternRule {
+
+        private final String uri;
+
+        private final int permissionId;
+
+        private PatternRule(String uri, int permissionId) {
+            this.uri = uri;
+            this.permissionId = permissionId;
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.xixi.mall.gateway.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xixi.mall.common.auth.constant.AuthKeys;
+import com.xixi.mall.common.auth.token.SignedTokenCodec;
+import com.xixi.mall.common.auth.token.TokenCodec;
+import com.xixi.mall.common.auth.util.TypedJsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * 通过响应式redis解析base64 token对应的用户信息
+ * 签名token由下游在本地验签，网关不处理
+ */
+@Component
+public class ReactiveTokenResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveTokenResolver.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 开启滑动过期时，临近过期的token交给下游通过auth服务校验，由auth服务延长有效期
+     */
+    @Value("${auth.token.session.sliding-enabled:false}")
+    private boolean slidingEnabled;
+
+    @Value("${auth.token.session.sliding-threshold:600}")
+    private long slidingThreshold;
+
+    /**
+     * 解码在事件循环线程上同步完成，按线程复用解码结果
+     */
+    private final ThreadLocal<TokenCodec.DecodedToken> decodedTokens = ThreadLocal.withInitial(TokenCodec.DecodedToken::new);
+
+    public ReactiveTokenResolver(ReactiveStringRedisTemplate reactiveStringRedisTemplate, ObjectMapper objectMapper) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 是否是签名token
+     *
+     * @param token token
+     * @return 是否是签名token
+     */
+    public boolean isSignedToken(String token) {
+        return SignedTokenCodec.isSignedToken(token);
+    }
+
+    /**
+     * 获取token对应的用户信息
+     * token已过期时不一定会被下游拒绝（如下游配置了不需要授权的路径），所以无法确定时都返回空，交给下游处理
+     *
+     * @param webToken 前端传入的token
+     * @return 用户信息，token无效或需要交给下游处理时为空
+     */
+    public Mono<ObjectNode> resolve(String webToken) {
+
+        // 只校验格式，token的有效期以redis为准
+        TokenCodec.DecodedToken decodedToken = decodedTokens.get();
+
+        if (!TokenCodec.decode(webToken, decodedToken)) {
+            return Mono.empty();
+        }
+
+        String accessKey = AuthKeys.ACCESS + decodedToken.getToken();
+
+        Mono<String> userInfoMono = reactiveStringRedisTemplate.opsForValue().get(accessKey);
+
+        if (slidingEnabled) {
+            userInfoMono = userInfoMono
+                    .zipWith(reactiveStringRedisTemplate.getExpire(accessKey).defaultIfEmpty(Duration.ZERO))
+                    .filter(tuple -> tuple.getT2().getSeconds() >= slidingThreshold)
+                    .map(Tuple2::getT1);
+        }
+
+        return userInfoMono.flatMap(this::parseUserInfo)
+                .onErrorResume(e -> {
+                    log.error("resolve token error: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<ObjectNode> parseUserInfo(String json) {
+        try {
+            // redis中的值带有类型信息，转发给下游时去掉
+            JsonNode node = TypedJsonUtil.readUntyped(objectMapper, json);
+
+            return node instanceof ObjectNode
+                    ? Mono.just((ObjectNode) node)
+                    : Mono.empty();
+        } catch (IOException e) {
+            return Mono.empty();
+        }
+    }
+
+}
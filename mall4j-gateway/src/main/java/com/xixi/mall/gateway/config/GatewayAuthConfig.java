@@ -0,0 +1,87 @@
+package com.xixi.mall.gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 网关统一鉴权配置
+ * 开启后网关通过响应式redis校验token与用户权限，并将签名的用户身份写入请求头，下游AuthFilter验签后不再请求auth服务
+ * 网关无法确定的情况（签名token、未缓存的权限等）直接放行，由下游AuthFilter按原流程校验
+ */
+@RefreshScope
+@Configuration
+@ConfigurationProperties("gateway.auth")
+public class GatewayAuthConfig {
+
+    /**
+     * 是否开启网关鉴权
+     */
+    private boolean enabled = false;
+
+    /**
+     * 是否在网关校验用户权限
+     */
+    private boolean rbacEnabled = true;
+
+    /**
+     * uri权限规则在网关本地的缓存时间，以毫秒为单位
+     */
+    private long rbacSyncInterval = 10000;
+
+    /**
+     * 不需要授权的路径，匹配转发后的路径，需包含各服务AuthConfigAdapter中自定义的路径
+     */
+    private List<String> excludePathPatterns = new ArrayList<>(Arrays.asList(
+            "/v2/api-docs",
+            "/feign/**/insider/**",
+            "/**/ua/**"
+    ));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRbacEnabled() {
+        return rbacEnabled;
+    }
+
+    public void setRbacEnabled(boolean rbacEnabled) {
+        this.rbacEnabled = rbacEnabled;
+    }
+
+    public long getRbacSyncInterval() {
+        return rbacSyncInterval;
+    }
+
+    public void setRbacSyncInterval(long rbacSyncInterval) {
+        this.rbacSyncInterval = rbacSyncInterval;
+    }
+
+    public List<String> getExcludePathPatterns() {
+        return excludePathPatterns;
+    }
+
+    public void setExcludePathPatterns(List<String> excludePathPatterns) {
+        this.excludePathPatterns = excludePathPatterns;
+    }
+
+    @Override
+    public String toString() {
+        return "GatewayAuthConfig{" +
+                "enabled=" + enabled +
+                ", rbacEnabled=" + rbacEnabled +
+                ", rbacSyncInterval=" + rbacSyncInterval +
+                ", excludePathPatterns=" + excludePathPatterns +
+                '}';
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.xixi.mall.gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 用户身份的签名配置，与各服务的 auth.identity 使用相同的配置
+ */
+@RefreshScope
+@Configuration
+@ConfigurationProperties("auth.identity")
+public class IdentityConfig {
+
+    /**
+     * 当前用于签名的密钥id
+     */
+    private String currentKid;
+
+    /**
+     * 密钥id -> 密钥
+     */
+    private Map<String, String> keys = new HashMap<>();
+
+    /**
+     * 签名的有效期，以毫秒为单位
+     */
+    private long ttl = 30000;
+
+    public String getCurrentKid() {
+        return currentKid;
+    }
+
+    public void setCurrentKid(String currentKid) {
+        this.currentKid = currentKid;
+    }
+
+    public Map<String, String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(Map<String, String> keys) {
+        this.keys = keys;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    @Override
+    public String toString() {
+        return "IdentityConfig{" +
+                "currentKid='" + currentKid + '\'' +
+                ", ttl=" + ttl +
+                '}';
+    }
+
+}
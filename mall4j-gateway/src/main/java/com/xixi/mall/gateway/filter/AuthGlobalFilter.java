@@ -0,0 +1,135 @@
+package com.xixi.mall.gateway.filter;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xixi.mall.common.auth.constant.AuthConstant;
+import com.xixi.mall.gateway.auth.IdentitySigner;
+import com.xixi.mall.gateway.auth.ReactiveRbacChecker;
+import com.xixi.mall.gateway.auth.ReactiveTokenResolver;
+import com.xixi.mall.gateway.config.GatewayAuthConfig;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * 网关统一鉴权
+ * 在路由转换之后执行，按转发后的路径匹配；token有效时将签名的用户身份写入请求头，下游AuthFilter验签后直接使用，
+ * 用户权限确定不足时直接拒绝，其它无法确定的情况都原样转发，由下游AuthFilter按原流程校验
+ */
+@Component
+public class AuthGlobalFilter implements GlobalFilter, Ordered {
+
+    private static final byte[] UNAUTHORIZED_RESPONSE = AuthConstant.UNAUTHORIZED_RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final GatewayAuthConfig gatewayAuthConfig;
+
+    private final ReactiveTokenResolver reactiveTokenResolver;
+
+    private final ReactiveRbacChecker reactiveRbacChecker;
+
+    private final IdentitySigner identitySigner;
+
+    public AuthGlobalFilter(GatewayAuthConfig gatewayAuthConfig,
+                            ReactiveTokenResolver reactiveTokenResolver,
+                            ReactiveRbacChecker reactiveRbacChecker,
+                            IdentitySigner identitySigner) {
+        this.gatewayAuthConfig = gatewayAuthConfig;
+        this.reactiveTokenResolver = reactiveTokenResolver;
+        this.reactiveRbacChecker = reactiveRbacChecker;
+        this.identitySigner = identitySigner;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+
+        // 外部请求不能携带用户身份
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> headers.remove(AuthConstant.IDENTITY_HEADER))
+                .build();
+        ServerWebExchange forwardExchange = exchange.mutate().request(request).build();
+
+        if (!gatewayAuthConfig.isEnabled()) {
+            return chain.filter(forwardExchange);
+        }
+
+        URI requestUrl = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        String path = requestUrl == null ? request.getPath().value() : requestUrl.getRawPath();
+
+        // 不需要授权的路径
+        for (String excludePath : gatewayAuthConfig.getExcludePathPatterns()) {
+            if (PATH_MATCHER.match(excludePath, path)) {
+                return chain.filter(forwardExchange);
+            }
+        }
+
+        String accessToken = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        if (!StringUtils.hasText(accessToken) || reactiveTokenResolver.isSignedToken(accessToken)) {
+            return chain.filter(forwardExchange);
+        }
+
+        // 权限不足时为空，其它情况为需要转发的请求；权限无法确定时仍转发用户身份，由下游校验权限
+        return reactiveTokenResolver.resolve(accessToken)
+                .flatMap(userInfoInToken -> checkRbac(userInfoInToken, path, request)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(permitted -> permitted.orElse(true)
+                                ? Optional.of(withIdentity(forwardExchange, userInfoInToken, permitted.isPresent()))
+                                : Optional.<ServerWebExchange>empty()))
+                .defaultIfEmpty(Optional.of(forwardExchange))
+                .flatMap(decision -> decision.isPresent()
+                        ? chain.filter(decision.get())
+                        : unauthorized(exchange.getResponse()));
+    }
+
+    private Mono<Boolean> checkRbac(ObjectNode userInfoInToken, String path, ServerHttpRequest request) {
+        return gatewayAuthConfig.isRbacEnabled()
+                ? reactiveRbacChecker.check(userInfoInToken, path, request.getMethod())
+                : Mono.empty();
+    }
+
+    private ServerWebExchange withIdentity(ServerWebExchange exchange, ObjectNode userInfoInToken, boolean rbacChecked) {
+
+        String identity = identitySigner.sign(userInfoInToken, rbacChecked);
+
+        if (identity == null) {
+            return exchange;
+        }
+
+        return exchange.mutate()
+                .request(exchange.getRequest().mutate().header(AuthConstant.IDENTITY_HEADER, identity).build())
+                .build();
+    }
+
+    private static Mono<Void> unauthorized(ServerHttpResponse response) {
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer buffer = response.bufferFactory().wrap(UNAUTHORIZED_RESPONSE);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    /**
+     * 在路由转换之后执行，以便匹配转发后的路径
+     */
+    @Override
+    public int getOrder() {
+        return RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 1;
+    }
+
+}
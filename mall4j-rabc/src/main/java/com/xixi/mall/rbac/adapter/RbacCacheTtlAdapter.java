@@ -0,0 +1,36 @@
+package com.xixi.mall.rbac.adapter;
+
+import com.xixi.mall.common.cache.adapter.CacheTtlAdapter;
+import com.xixi.mall.common.cache.bo.CacheNameWithTtlBo;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * rbac服务的缓存配置
+ * 菜单按系统类型缓存，key很少且很少变化，在redis之前增加一级本地缓存
+ * uri权限规则快照同时被网关直接读取redis，不使用本地缓存
+ */
+@Component
+public class RbacCacheTtlAdapter implements CacheTtlAdapter {
+
+    private static final int MENU_TTL = 3600;
+
+    private static final int MENU_LOCAL_MAXIMUM_SIZE = 16;
+
+    private static final int MENU_LOCAL_TTL = 600;
+
+    private static final int URI_PERMISSION_TTL = 600;
+
+    @Override
+    public List<CacheNameWithTtlBo> listCacheNameWithTtl() {
+        return Arrays.asList(
+                new CacheNameWithTtlBo(CacheNames.MENU_LIST_KEY, MENU_TTL, MENU_LOCAL_MAXIMUM_SIZE, MENU_LOCAL_TTL),
+                new CacheNameWithTtlBo(CacheNames.MENU_TREE_KEY, MENU_TTL, MENU_LOCAL_MAXIMUM_SIZE, MENU_LOCAL_TTL),
+                new CacheNameWithTtlBo(CacheNames.URI_PERMISSION_KEY, URI_PERMISSION_TTL)
+        );
+    }
+
+}
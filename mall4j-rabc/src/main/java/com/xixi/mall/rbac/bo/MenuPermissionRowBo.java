@@ -0,0 +1,40 @@
+package com.xixi.mall.rbac.bo;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 菜单 left join 菜单权限 的一行，菜单没有权限时权限字段为空
+ */
+@Getter
+@Setter
+@ToString
+public class MenuPermissionRowBo {
+
+    /**
+     * 菜单id
+     */
+    private Long menuId;
+
+    /**
+     * 父菜单ID，一级菜单为0
+     */
+    private Long parentId;
+
+    /**
+     * 菜单标题
+     */
+    private String title;
+
+    /**
+     * 菜单资源id
+     */
+    private Long menuPermissionId;
+
+    /**
+     * 资源名称
+     */
+    private String name;
+
+}
@@ -0,0 +1,32 @@
+package com.xixi.mall.rbac.bo;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * 预先生成的路由菜单响应
+ */
+@Getter
+@Setter
+@ToString(exclude = "body")
+@Accessors(chain = true)
+public class RouteSnapshotBo {
+
+    /**
+     * 序列化后的响应体
+     */
+    private byte[] body;
+
+    /**
+     * 响应体的md5，用作ETag
+     */
+    private String etag;
+
+    /**
+     * 生成时间戳，超过有效期后重新生成
+     */
+    private long createTime;
+
+}
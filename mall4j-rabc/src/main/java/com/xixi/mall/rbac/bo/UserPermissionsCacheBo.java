@@ -0,0 +1,29 @@
+package com.xixi.mall.rbac.bo;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 缓存的用户权限
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class UserPermissionsCacheBo {
+
+    /**
+     * 查询时的权限版本，与当前版本不一致时缓存已过期
+     */
+    private String epoch;
+
+    /**
+     * 权限列表
+     */
+    private List<String> permissions;
+
+}
@@ -3,12 +3,15 @@ package com.xixi.mall.rbac.controller;
 import com.xixi.mall.common.core.aop.PackResponseEnhance;
 import com.xixi.mall.common.core.dto.MenuDto;
 import com.xixi.mall.common.core.webbase.vo.ServerResponse;
+import com.xixi.mall.rbac.bo.RouteSnapshotBo;
 import com.xixi.mall.rbac.service.web.MenuService;
 import com.xixi.mall.rbac.vo.MenuSimpleVo;
 import com.xixi.mall.rbac.vo.MenuVo;
-import com.xixi.mall.rbac.vo.RouteVo;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
@@ -23,10 +26,27 @@ public class MenuController {
     @Resource
     private MenuService service;
 
+    /**
+     * 返回预先序列化的 ServerResponse<List<RouteVo>>，携带ETag，If-None-Match一致时返回304
+     * 失败时与其它接口一样返回 ServerResponse
+     */
     @GetMapping(value = "/route")
     @ApiOperation(value = "路由菜单", notes = "获取当前登陆用户可用的路由菜单列表")
-    public ServerResponse<List<RouteVo>> route(Integer sysType) {
-        return PackResponseEnhance.enhance(() -> service.route(sysType));
+    public ResponseEntity<?> route(Integer sysType) {
+
+        ServerResponse<RouteSnapshotBo> response = PackResponseEnhance.enhance(() -> service.route(sysType));
+
+        if (response.unSuccess()) {
+            return ResponseEntity.ok(response);
+        }
+
+        RouteSnapshotBo snapshot = response.getData();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getEtag())
+                .body(snapshot.getBody());
     }
 
     @GetMapping("/getMenuId")
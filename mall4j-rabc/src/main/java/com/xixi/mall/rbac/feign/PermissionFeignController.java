@@ -0,0 +1,46 @@
+package com.xixi.mall.rbac.feign;
+
+import com.xixi.mall.api.rabc.bo.UriPermissionSnapshotBo;
+import com.xixi.mall.api.rabc.bo.UserPermissionBitmapBo;
+import com.xixi.mall.api.rabc.dto.ClearUserPermissionsCacheDto;
+import com.xixi.mall.api.rabc.feign.PermissionFeignClient;
+import com.xixi.mall.common.core.aop.PackResponseEnhance;
+import com.xixi.mall.common.core.webbase.vo.ServerResponse;
+import com.xixi.mall.rbac.service.feign.PermissionFeignService;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+@RestController
+public class PermissionFeignController implements PermissionFeignClient {
+
+    @Resource
+    private PermissionFeignService service;
+
+    @Override
+    public ServerResponse<Boolean> checkPermission(Long userId, Integer sysType, String uri, Integer isAdmin, Integer method) {
+        return PackResponseEnhance.enhance(() -> service.checkPermission(userId, sysType, uri, isAdmin, method));
+    }
+
+    @Override
+    public ServerResponse<Void> clearUserPermissionsCache(ClearUserPermissionsCacheDto clearUserPermissionsCacheDto) {
+        return PackResponseEnhance.enhance(() -> service.clearUserPermissionsCache(clearUserPermissionsCacheDto));
+    }
+
+    @Override
+    public ServerResponse<UriPermissionSnapshotBo> getUriPermissionSnapshot(Integer sysType, String version) {
+        return PackResponseEnhance.enhance(() -> service.getUriPermissionSnapshot(sysType, version));
+    }
+
+    @Override
+    public ServerResponse<List<String>> listUserPermissions(Long userId, Integer sysType, Integer isAdmin) {
+        return PackResponseEnhance.enhance(() -> service.listUserPermissions(userId, sysType, isAdmin));
+    }
+
+    @Override
+    public ServerResponse<UserPermissionBitmapBo> getUserPermissionBitmap(Long userId, Integer sysType, Integer isAdmin) {
+        return PackResponseEnhance.enhance(() -> service.getUserPermissionBitmap(userId, sysType, isAdmin));
+    }
+
+}
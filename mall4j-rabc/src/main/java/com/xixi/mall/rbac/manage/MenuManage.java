@@ -2,43 +2,72 @@ package com.xixi.mall.rbac.manage;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.security.rbac.PermissionEpochService;
+import com.xixi.mall.rbac.bo.MenuPermissionRowBo;
 import com.xixi.mall.rbac.entity.MenuEntity;
 import com.xixi.mall.rbac.mapper.MenuMapper;
+import com.xixi.mall.rbac.vo.MenuPermissionSimpleVo;
 import com.xixi.mall.rbac.vo.MenuSimpleVo;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+@Slf4j
 @Service
 public class MenuManage {
 
     @Resource
     private MenuMapper menuMapper;
 
-    @CacheEvict(cacheNames = CacheNames.MENU_LIST_KEY, key = "#menuEntity.bizType")
+    @Resource
+    private PermissionEpochService permissionEpochService;
+
+    @CacheEvict(cacheNames = {CacheNames.MENU_LIST_KEY, CacheNames.MENU_TREE_KEY}, key = "#menuEntity.bizType")
     public void save(MenuEntity menuEntity) {
         menuMapper.insert(menuEntity);
+        permissionEpochService.bumpSysType(menuEntity.getBizType());
     }
 
-    @CacheEvict(cacheNames = CacheNames.MENU_LIST_KEY, key = "#menuEntity.bizType")
+    @CacheEvict(cacheNames = {CacheNames.MENU_LIST_KEY, CacheNames.MENU_TREE_KEY}, key = "#menuEntity.bizType")
     public void update(MenuEntity menuEntity) {
         menuMapper.updateById(menuEntity);
+        permissionEpochService.bumpSysType(menuEntity.getBizType());
     }
 
-    @CacheEvict(cacheNames = CacheNames.MENU_LIST_KEY, key = "#sysType")
+    @CacheEvict(cacheNames = {CacheNames.MENU_LIST_KEY, CacheNames.MENU_TREE_KEY}, key = "#sysType")
     public void deleteById(Long menuId, Integer sysType) {
         menuMapper.delete(
                 Wrappers.<MenuEntity>lambdaQuery()
                         .eq(MenuEntity::getMenuId, menuId)
                         .eq(MenuEntity::getBizType, sysType)
         );
+        permissionEpochService.bumpSysType(sysType);
     }
 
-    @Cacheable(cacheNames = CacheNames.MENU_LIST_KEY, key = "#sysType")
+    @Cacheable(cacheNames = CacheNames.MENU_LIST_KEY, key = "#sysType", sync = true)
     public List<MenuEntity> listBySysType(Integer sysType) {
+        return selectBySysType(sysType);
+    }
+
+    /**
+     * 直接从数据库读取某个系统下的菜单，不经过缓存
+     *
+     * @param sysType 系统类型
+     * @return 菜单列表
+     */
+    public List<MenuEntity> selectBySysType(Integer sysType) {
         return menuMapper.selectList(
                 Wrappers.<MenuEntity>lambdaQuery()
                         .eq(MenuEntity::getBizType, sysType)
@@ -47,11 +76,102 @@ public class MenuManage {
         );
     }
 
+    /**
+     * 获取某个系统下的菜单树，菜单下的权限放在菜单中
+     *
+     * @param sysType 系统类型
+     * @return 一级菜单列表
+     */
+    @Cacheable(cacheNames = CacheNames.MENU_TREE_KEY, key = "#sysType", sync = true)
     public List<MenuSimpleVo> listWithPermissions(Integer sysType) {
-//        select m.menu_id,m.parent_id,m.title,mp.name,mp.menu_permission_id, mp.menu_id permission_menu_id
-//        from menu m
-//        left join menu_permission mp on m.menu_id = mp.menu_id
-//        where m.biz_type = #{sysType}
-        return menuMapper.listWithPermissions();
+        return buildTree(menuMapper.listWithPermissions(sysType));
+    }
+
+    /**
+     * 一次遍历按菜单id合并权限，再按父菜单id挂载子菜单，父菜单不存在的菜单视为一级菜单
+     * 父菜单id成环的菜单无法从一级菜单到达，从环中断开后作为一级菜单，避免菜单丢失
+     */
+    private static List<MenuSimpleVo> buildTree(List<MenuPermissionRowBo> rows) {
+
+        Map<Long, MenuSimpleVo> menuMap = new LinkedHashMap<>();
+
+        for (MenuPermissionRowBo row : rows) {
+
+            MenuSimpleVo menu = menuMap.computeIfAbsent(row.getMenuId(), menuId -> {
+
+                MenuSimpleVo menuSimpleVo = new MenuSimpleVo();
+                menuSimpleVo.setMenuId(menuId);
+                menuSimpleVo.setParentId(row.getParentId());
+                menuSimpleVo.setTitle(row.getTitle());
+                menuSimpleVo.setMenuPermissions(new ArrayList<>());
+                menuSimpleVo.setChildren(new ArrayList<>());
+
+                return menuSimpleVo;
+            });
+
+            if (row.getMenuPermissionId() != null) {
+
+                MenuPermissionSimpleVo menuPermission = new MenuPermissionSimpleVo();
+                menuPermission.setMenuPermissionId(row.getMenuPermissionId());
+                menuPermission.setMenuId(row.getMenuId());
+                menuPermission.setName(row.getName());
+
+                menu.getMenuPermissions().add(menuPermission);
+            }
+        }
+
+        List<MenuSimpleVo> roots = new ArrayList<>();
+
+        for (MenuSimpleVo menu : menuMap.values()) {
+
+            MenuSimpleVo parent = menu.getParentId() == null ? null : menuMap.get(menu.getParentId());
+
+            if (parent == null || parent == menu) {
+                roots.add(menu);
+            } else {
+                parent.getChildren().add(menu);
+            }
+        }
+
+        Set<MenuSimpleVo> reachable = Collections.newSetFromMap(new IdentityHashMap<>(menuMap.size()));
+
+        for (MenuSimpleVo root : roots) {
+            markReachable(root, reachable);
+        }
+
+        if (reachable.size() == menuMap.size()) {
+            return roots;
+        }
+
+        for (MenuSimpleVo menu : menuMap.values()) {
+
+            if (reachable.contains(menu)) {
+                continue;
+            }
+
+            log.warn("menu parent id cycle, menuId: {}, parentId: {}", menu.getMenuId(), menu.getParentId());
+
+            // 按引用移除，菜单成环时equals会无限递归
+            menuMap.get(menu.getParentId()).getChildren().removeIf(child -> child == menu);
+            roots.add(menu);
+            markReachable(menu, reachable);
+        }
+
+        return roots;
+    }
+
+    private static void markReachable(MenuSimpleVo root, Set<MenuSimpleVo> reachable) {
+
+        Deque<MenuSimpleVo> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+
+            MenuSimpleVo menu = stack.pop();
+
+            if (reachable.add(menu)) {
+                menu.getChildren().forEach(stack::push);
+            }
+        }
     }
 }
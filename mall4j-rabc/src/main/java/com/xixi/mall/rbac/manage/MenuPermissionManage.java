@@ -0,0 +1,137 @@
+package com.xixi.mall.rbac.manage;
+
+import cn.hutool.crypto.SecureUtil;
+import com.xixi.mall.api.rabc.bo.UriPermissionBo;
+import com.xixi.mall.api.rabc.bo.UriPermissionSnapshotBo;
+import com.xixi.mall.api.rabc.bo.UserPermissionBitmapBo;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.cache.utils.CacheManagerUtil;
+import com.xixi.mall.common.security.rbac.PermissionEpochService;
+import com.xixi.mall.rbac.bo.UserPermissionsCacheBo;
+import com.xixi.mall.rbac.mapper.MenuPermissionMapper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@Service
+public class MenuPermissionManage {
+
+    @Resource
+    private MenuPermissionMapper menuPermissionMapper;
+
+    @Resource
+    private PermissionIdManage permissionIdManage;
+
+    @Resource
+    private PermissionEpochService permissionEpochService;
+
+    @Resource
+    private CacheManagerUtil cacheManagerUtil;
+
+    /**
+     * 获取uri权限规则快照，版本为规则内容的md5
+     * 本服务没有修改权限规则的接口，规则在库中修改后最多在缓存过期后生效，过期时间见 RbacCacheTtlAdapter
+     *
+     * @param sysType 系统类型
+     * @return uri权限规则快照
+     */
+    @Cacheable(cacheNames = CacheNames.URI_PERMISSION_KEY, key = "#sysType", sync = true)
+    public UriPermissionSnapshotBo getUriPermissionSnapshot(Integer sysType) {
+
+        // sql中已排序，相同的规则得到相同的版本
+        List<UriPermissionBo> uriPermissions = menuPermissionMapper.listUriPermissionInfo(sysType);
+
+        Map<String, Integer> permissionIdMap = permissionIdManage.intern(sysType,
+                uriPermissions.stream().map(UriPermissionBo::getPermission).collect(Collectors.toList()));
+
+        StringBuilder content = new StringBuilder();
+
+        for (UriPermissionBo uriPermission : uriPermissions) {
+
+            uriPermission.setPermissionId(permissionIdMap.get(uriPermission.getPermission()));
+
+            content.append(uriPermission.getMethod()).append(' ')
+                    .append(uriPermission.getUri()).append(' ')
+                    .append(uriPermission.getPermission()).append(' ')
+                    .append(uriPermission.getPermissionId()).append('\n');
+        }
+
+        return new UriPermissionSnapshotBo()
+                .setVersion(SecureUtil.md5(content.toString()))
+                .setUriPermissions(uriPermissions);
+    }
+
+    /**
+     * 获取用户拥有的权限，管理员拥有该系统下的全部权限
+     * 缓存中记录生成时的权限版本，版本不一致时重新查询
+     *
+     * @param userId  用户id
+     * @param sysType 系统类型
+     * @param isAdmin 是否管理员
+     * @return 权限列表
+     */
+    public List<String> listUserPermissions(Long userId, Integer sysType, boolean isAdmin) {
+
+        String key = sysType + CacheNames.UNION_KEY + userId;
+        // 先取版本再查询，查询期间版本变化时缓存的是旧版本，下次读取会重新查询
+        String epoch = permissionEpochService.current(sysType, userId);
+
+        // 旧版本直接缓存的是权限列表，类型不同时同样视为过期
+        Object cached = cacheManagerUtil.getCache(CacheNames.USER_PERMISSIONS_KEY, key);
+
+        if (cached instanceof UserPermissionsCacheBo
+                && Objects.equals(((UserPermissionsCacheBo) cached).getEpoch(), epoch)) {
+            return ((UserPermissionsCacheBo) cached).getPermissions();
+        }
+
+        List<String> permissions = loadUserPermissions(userId, sysType, isAdmin);
+
+        cacheManagerUtil.putCache(CacheNames.USER_PERMISSIONS_KEY, key,
+                new UserPermissionsCacheBo().setEpoch(epoch).setPermissions(permissions));
+
+        return permissions;
+    }
+
+    /**
+     * 获取用户拥有的权限位图，位下标为权限id
+     * 缓存中记录生成时的权限版本，版本不一致时重新生成
+     *
+     * @param userId  用户id
+     * @param sysType 系统类型
+     * @param isAdmin 是否管理员
+     * @return 权限位图
+     */
+    public UserPermissionBitmapBo getUserPermissionBitmap(Long userId, Integer sysType, boolean isAdmin) {
+
+        String key = sysType + CacheNames.UNION_KEY + userId;
+        String epoch = permissionEpochService.current(sysType, userId);
+
+        UserPermissionBitmapBo cached = cacheManagerUtil.getCache(CacheNames.USER_PERMISSION_BITMAP_KEY, key);
+
+        if (cached != null && Objects.equals(cached.getEpoch(), epoch)) {
+            return cached;
+        }
+
+        List<String> permissions = loadUserPermissions(userId, sysType, isAdmin);
+
+        UserPermissionBitmapBo bitmap = new UserPermissionBitmapBo()
+                .setEpoch(epoch)
+                .setBitmap(permissionIdManage.toBitmap(sysType, permissions).toByteArray());
+
+        cacheManagerUtil.putCache(CacheNames.USER_PERMISSION_BITMAP_KEY, key, bitmap);
+
+        return bitmap;
+    }
+
+    private List<String> loadUserPermissions(Long userId, Integer sysType, boolean isAdmin) {
+        return isAdmin
+                ? menuPermissionMapper.listPermissions(sysType)
+                : menuPermissionMapper.listUserPermissions(userId, sysType);
+    }
+
+}
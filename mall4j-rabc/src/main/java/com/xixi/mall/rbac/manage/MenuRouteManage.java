@@ -0,0 +1,155 @@
+package com.xixi.mall.rbac.manage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xixi.mall.api.auth.constant.SysTypeEnum;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import com.xixi.mall.common.core.utils.BooleanUtil;
+import com.xixi.mall.common.core.utils.ThrowUtils;
+import com.xixi.mall.common.core.webbase.vo.ServerResponse;
+import com.xixi.mall.rbac.bo.RouteSnapshotBo;
+import com.xixi.mall.rbac.vo.RouteMetaVo;
+import com.xixi.mall.rbac.vo.RouteVo;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 路由菜单
+ * 每个系统类型的路由菜单只生成并序列化一次，保存在本地，菜单变化时通过redis发布订阅通知各节点重新生成
+ * 生成时直接读取数据库，不读取可能尚未失效的菜单缓存；通知丢失时最多在有效期后重新生成
+ */
+@Service
+public class MenuRouteManage {
+
+    @Resource
+    private MenuManage menuManage;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 路由菜单的本地有效期
+     */
+    private static final long SNAPSHOT_TTL = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 系统类型 -> 路由菜单响应，只保存 SysTypeEnum 中的系统类型
+     */
+    private final Map<Integer, RouteSnapshotBo> snapshotMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> onChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CacheNames.MENU_ROUTE_INVALIDATE_CHANNEL)
+        );
+    }
+
+    private void onChange(String sysType) {
+        try {
+            snapshotMap.remove(Integer.valueOf(sysType));
+        } catch (NumberFormatException e) {
+            // 忽略格式有误的消息，对应的路由菜单在有效期后重新生成
+        }
+    }
+
+    /**
+     * 获取路由菜单响应
+     *
+     * @param sysType 系统类型
+     * @return 路由菜单响应
+     */
+    public RouteSnapshotBo getSnapshot(Integer sysType) {
+
+        if (Arrays.stream(SysTypeEnum.values()).noneMatch(sysTypeEnum -> Objects.equals(sysTypeEnum.getValue(), sysType))) {
+            ThrowUtils.throwErr("sysType 有误");
+        }
+
+        RouteSnapshotBo snapshot = snapshotMap.get(sysType);
+
+        if (snapshot != null && !isExpired(snapshot)) {
+            return snapshot;
+        }
+
+        return snapshotMap.compute(sysType, (key, current) -> current == null || isExpired(current) ? build(key) : current);
+    }
+
+    /**
+     * 菜单已变化，通知各节点重新生成路由菜单
+     *
+     * @param sysTypes 菜单变化前后的系统类型
+     */
+    public void publishChange(Integer... sysTypes) {
+        Arrays.stream(sysTypes)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(sysType -> stringRedisTemplate.convertAndSend(CacheNames.MENU_ROUTE_INVALIDATE_CHANNEL, String.valueOf(sysType)));
+    }
+
+    private static boolean isExpired(RouteSnapshotBo snapshot) {
+        return System.currentTimeMillis() - snapshot.getCreateTime() > SNAPSHOT_TTL;
+    }
+
+    private RouteSnapshotBo build(Integer sysType) {
+
+        List<RouteVo> routes = menuManage.selectBySysType(sysType)
+                .stream()
+                .map(menuEntity ->
+                        new RouteVo()
+                                .setAlwaysShow(BooleanUtil.isTrue(menuEntity.getAlwaysShow()))
+                                .setComponent(menuEntity.getComponent())
+                                .setHidden(BooleanUtil.isTrue(menuEntity.getHidden()))
+                                .setName(menuEntity.getName())
+                                .setPath(menuEntity.getPath())
+                                .setRedirect(menuEntity.getRedirect())
+                                .setId(menuEntity.getMenuId())
+                                .setParentId(menuEntity.getParentId())
+                                .setSeq(menuEntity.getSeq())
+                                .setMeta(
+                                        new RouteMetaVo()
+                                                .setActiveMenu(menuEntity.getActiveMenu())
+                                                .setAffix(BooleanUtil.isTrue(menuEntity.getAffix()))
+                                                .setBreadcrumb(BooleanUtil.isTrue(menuEntity.getBreadcrumb()))
+                                                .setIcon(menuEntity.getIcon())
+                                                .setNoCache(BooleanUtil.isTrue(menuEntity.getNoCache()))
+                                                .setTitle(menuEntity.getTitle())
+                                                .setRoles(Collections.singletonList(menuEntity.getPermission()))
+                                )
+                )
+                .collect(Collectors.toList());
+
+        try {
+            // 与mvc使用同一个ObjectMapper，响应内容与直接返回对象时一致
+            byte[] body = objectMapper.writeValueAsBytes(ServerResponse.success(routes));
+
+            return new RouteSnapshotBo()
+                    .setBody(body)
+                    .setEtag(DigestUtils.md5DigestAsHex(body))
+                    .setCreateTime(System.currentTimeMillis());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
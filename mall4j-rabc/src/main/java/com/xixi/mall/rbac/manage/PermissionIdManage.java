@@ -0,0 +1,87 @@
+package com.xixi.mall.rbac.manage;
+
+import cn.hutool.core.collection.CollUtil;
+import com.xixi.mall.common.cache.constant.CacheNames;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.*;
+
+/**
+ * 权限字符串 -> 整数id
+ * 每个系统类型的id从0开始自增，分配后不再变化，用户权限以id为下标保存为位图
+ */
+@Service
+public class PermissionIdManage {
+
+    /**
+     * KEYS[1] 权限id hash，KEYS[2] id序列，ARGV 权限，返回与ARGV一一对应的id
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> INTERN_SCRIPT = RedisScript.of(
+            "local ids = {}\n" +
+                    "for i, permission in ipairs(ARGV) do\n" +
+                    "  local id = redis.call('HGET', KEYS[1], permission)\n" +
+                    "  if not id then\n" +
+                    "    id = redis.call('INCR', KEYS[2]) - 1\n" +
+                    "    redis.call('HSET', KEYS[1], permission, id)\n" +
+                    "  end\n" +
+                    "  ids[i] = tonumber(id)\n" +
+                    "end\n" +
+                    "return ids",
+            List.class
+    );
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取权限的id，没有id的权限分配新的id
+     *
+     * @param sysType     系统类型
+     * @param permissions 权限
+     * @return 权限 -> id
+     */
+    public Map<String, Integer> intern(Integer sysType, Collection<String> permissions) {
+
+        if (CollUtil.isEmpty(permissions)) {
+            return Collections.emptyMap();
+        }
+
+        List<String> distinctPermissions = new ArrayList<>(new LinkedHashSet<>(permissions));
+        distinctPermissions.removeIf(Objects::isNull);
+
+        List<?> ids = stringRedisTemplate.execute(INTERN_SCRIPT,
+                Arrays.asList(CacheNames.PERMISSION_ID_KEY + sysType, CacheNames.PERMISSION_ID_SEQ_KEY + sysType),
+                distinctPermissions.toArray());
+
+        Map<String, Integer> idMap = new HashMap<>(distinctPermissions.size() * 4 / 3 + 1);
+
+        for (int i = 0; i < distinctPermissions.size(); i++) {
+            idMap.put(distinctPermissions.get(i), ((Number) ids.get(i)).intValue());
+        }
+
+        return idMap;
+    }
+
+    /**
+     * 将权限转换为位图
+     *
+     * @param sysType     系统类型
+     * @param permissions 权限
+     * @return 位图
+     */
+    public BitSet toBitmap(Integer sysType, Collection<String> permissions) {
+
+        BitSet bitmap = new BitSet();
+
+        for (Integer id : intern(sysType, permissions).values()) {
+            bitmap.set(id);
+        }
+
+        return bitmap;
+    }
+
+}
@@ -1,8 +1,9 @@
 package com.xixi.mall.rbac.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.xixi.mall.rbac.bo.MenuPermissionRowBo;
 import com.xixi.mall.rbac.entity.MenuEntity;
-import com.xixi.mall.rbac.vo.MenuSimpleVo;
+import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
 
@@ -11,6 +12,12 @@ import java.util.List;
  */
 public interface MenuMapper extends BaseMapper<MenuEntity> {
 
-    List<MenuSimpleVo> listWithPermissions();
+    /**
+     * 获取某个系统下的菜单 + 菜单下的权限，每个权限一行
+     *
+     * @param sysType 系统类型
+     * @return 菜单权限
+     */
+    List<MenuPermissionRowBo> listWithPermissions(@Param("sysType") Integer sysType);
 
 }
@@ -0,0 +1,37 @@
+package com.xixi.mall.rbac.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.xixi.mall.api.rabc.bo.UriPermissionBo;
+import com.xixi.mall.rbac.entity.MenuPermissionEntity;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+public interface MenuPermissionMapper extends BaseMapper<MenuPermissionEntity> {
+
+    /**
+     * 获取某个系统下全部的uri权限规则
+     *
+     * @param sysType 系统类型
+     * @return uri权限规则
+     */
+    List<UriPermissionBo> listUriPermissionInfo(@Param("sysType") Integer sysType);
+
+    /**
+     * 获取用户通过角色拥有的权限
+     *
+     * @param userId  用户id
+     * @param sysType 系统类型
+     * @return 权限列表
+     */
+    List<String> listUserPermissions(@Param("userId") Long userId, @Param("sysType") Integer sysType);
+
+    /**
+     * 获取某个系统下全部的权限
+     *
+     * @param sysType 系统类型
+     * @return 权限列表
+     */
+    List<String> listPermissions(@Param("sysType") Integer sysType);
+
+}
@@ -0,0 +1,109 @@
+package com.xixi.mall.rbac.service.feign;
+
+import cn.hutool.core.collection.CollUtil;
+import com.xixi.mall.api.rabc.bo.UriPermissionBo;
+import com.xixi.mall.api.rabc.bo.UriPermissionSnapshotBo;
+import com.xixi.mall.api.rabc.bo.UserPermissionBitmapBo;
+import com.xixi.mall.api.rabc.dto.ClearUserPermissionsCacheDto;
+import com.xixi.mall.common.core.utils.BooleanUtil;
+import com.xixi.mall.common.security.rbac.PermissionEpochService;
+import com.xixi.mall.rbac.manage.MenuPermissionManage;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Objects;
+
+import static com.xixi.mall.common.core.constant.Constant.VOID;
+
+@Service
+public class PermissionFeignService {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Resource
+    private MenuPermissionManage menuPermissionManage;
+
+    @Resource
+    private PermissionEpochService permissionEpochService;
+
+    /**
+     * 校验是否有某个uri的权限，没有配置权限的uri不限制访问
+     *
+     * @param userId  用户ID
+     * @param sysType 系统类型
+     * @param uri     uri
+     * @param isAdmin 是否管理员
+     * @param method  method
+     * @return 是否有权限
+     */
+    public Boolean checkPermission(Long userId, Integer sysType, String uri, Integer isAdmin, Integer method) {
+
+        if (BooleanUtil.isTrue(isAdmin)) {
+            return true;
+        }
+
+        List<UriPermissionBo> uriPermissions = menuPermissionManage.getUriPermissionSnapshot(sysType).getUriPermissions();
+
+        List<String> userPermissions = null;
+        boolean limited = false;
+
+        for (UriPermissionBo uriPermission : uriPermissions) {
+
+            if (!Objects.equals(uriPermission.getMethod(), method) || !PATH_MATCHER.match(uriPermission.getUri(), uri)) {
+                continue;
+            }
+
+            limited = true;
+
+            if (userPermissions == null) {
+                userPermissions = menuPermissionManage.listUserPermissions(userId, sysType, false);
+            }
+
+            if (CollUtil.contains(userPermissions, uriPermission.getPermission())) {
+                return true;
+            }
+        }
+
+        return !limited;
+    }
+
+    /**
+     * 获取uri权限规则快照
+     *
+     * @param sysType 系统类型
+     * @param version 调用方当前持有的版本
+     * @return uri权限规则快照，版本未变化时不返回规则
+     */
+    public UriPermissionSnapshotBo getUriPermissionSnapshot(Integer sysType, String version) {
+
+        UriPermissionSnapshotBo snapshot = menuPermissionManage.getUriPermissionSnapshot(sysType);
+
+        return Objects.equals(snapshot.getVersion(), version)
+                ? new UriPermissionSnapshotBo().setVersion(version)
+                : snapshot;
+    }
+
+    public List<String> listUserPermissions(Long userId, Integer sysType, Integer isAdmin) {
+        return menuPermissionManage.listUserPermissions(userId, sysType, BooleanUtil.isTrue(isAdmin));
+    }
+
+    public UserPermissionBitmapBo getUserPermissionBitmap(Long userId, Integer sysType, Integer isAdmin) {
+        return menuPermissionManage.getUserPermissionBitmap(userId, sysType, BooleanUtil.isTrue(isAdmin));
+    }
+
+    /**
+     * 使用户缓存的权限过期，并通知各节点移除本地缓存的用户权限
+     *
+     * @param clearUserPermissionsCacheDto dto
+     * @return void
+     */
+    public Void clearUserPermissionsCache(ClearUserPermissionsCacheDto clearUserPermissionsCacheDto) {
+
+        permissionEpochService.bumpUser(clearUserPermissionsCacheDto.getSysType(), clearUserPermissionsCacheDto.getUserId());
+
+        return VOID;
+    }
+
+}
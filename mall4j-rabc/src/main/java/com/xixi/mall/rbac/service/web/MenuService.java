@@ -4,25 +4,22 @@ import cn.hutool.core.bean.BeanUtil;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.xixi.mall.api.auth.bo.UserInfoInTokenBo;
 import com.xixi.mall.common.core.dto.MenuDto;
-import com.xixi.mall.common.core.utils.BooleanUtil;
 import com.xixi.mall.common.core.utils.ThrowUtils;
 import com.xixi.mall.common.security.context.AuthUserContext;
+import com.xixi.mall.rbac.bo.RouteSnapshotBo;
 import com.xixi.mall.rbac.entity.MenuEntity;
 import com.xixi.mall.rbac.manage.MenuManage;
+import com.xixi.mall.rbac.manage.MenuRouteManage;
 import com.xixi.mall.rbac.mapper.MenuMapper;
 import com.xixi.mall.rbac.vo.MenuSimpleVo;
 import com.xixi.mall.rbac.vo.MenuVo;
-import com.xixi.mall.rbac.vo.RouteMetaVo;
-import com.xixi.mall.rbac.vo.RouteVo;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import static com.xixi.mall.common.core.constant.Constant.VOID;
 
@@ -35,39 +32,18 @@ public class MenuService {
     @Resource
     private MenuManage menuManage;
 
+    @Resource
+    private MenuRouteManage menuRouteManage;
+
 
-    public List<RouteVo> route(Integer sysType) {
+    public RouteSnapshotBo route(Integer sysType) {
 
         sysType = Optional.ofNullable(sysType)
                 .orElse(
                         AuthUserContext.get().getSysType()
                 );
 
-        return menuManage.listBySysType(sysType)
-                .stream()
-                .map(menuEntity ->
-                        new RouteVo()
-                                .setAlwaysShow(BooleanUtil.isTrue(menuEntity.getAlwaysShow()))
-                                .setComponent(menuEntity.getComponent())
-                                .setHidden(BooleanUtil.isTrue(menuEntity.getHidden()))
-                                .setName(menuEntity.getName())
-                                .setPath(menuEntity.getPath())
-                                .setRedirect(menuEntity.getRedirect())
-                                .setId(menuEntity.getMenuId())
-                                .setParentId(menuEntity.getParentId())
-                                .setSeq(menuEntity.getSeq())
-                                .setMeta(
-                                        new RouteMetaVo()
-                                                .setActiveMenu(menuEntity.getActiveMenu())
-                                                .setAffix(BooleanUtil.isTrue(menuEntity.getAffix()))
-                                                .setBreadcrumb(BooleanUtil.isTrue(menuEntity.getBreadcrumb()))
-                                                .setIcon(menuEntity.getIcon())
-                                                .setNoCache(BooleanUtil.isTrue(menuEntity.getNoCache()))
-                                                .setTitle(menuEntity.getTitle())
-                                                .setRoles(Collections.singletonList(menuEntity.getPermission()))
-                                )
-                )
-                .collect(Collectors.toList());
+        return menuRouteManage.getSnapshot(sysType);
     }
 
     public MenuVo getByMenuId(Long menuId) {
@@ -84,6 +60,7 @@ public class MenuService {
         MenuEntity menu = checkAndGenerate(menuDto);
         menu.setMenuId(null);
         menuManage.save(menu);
+        menuRouteManage.publishChange(menu.getBizType());
         return VOID;
 
     }
@@ -107,7 +84,16 @@ public class MenuService {
 
     public Void update(MenuDto menuDto) {
         MenuEntity menuEntity = checkAndGenerate(menuDto);
+
+        // 菜单可能被移到其它系统，原系统的路由菜单同样需要重新生成
+        MenuEntity oldMenuEntity = menuMapper.selectOne(
+                Wrappers.<MenuEntity>lambdaQuery()
+                        .eq(MenuEntity::getMenuId, menuEntity.getMenuId())
+        );
+
         menuManage.update(menuEntity);
+        menuRouteManage.publishChange(menuEntity.getBizType(),
+                oldMenuEntity == null ? null : oldMenuEntity.getBizType());
         return VOID;
     }
 
@@ -124,6 +110,7 @@ public class MenuService {
                 : sysType;
 
         menuManage.deleteById(menuId, sysType);
+        menuRouteManage.publishChange(sysType);
 
         return VOID;
     }
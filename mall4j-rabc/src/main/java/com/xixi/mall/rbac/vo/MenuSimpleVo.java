@@ -26,4 +26,7 @@ public class MenuSimpleVo {
     @ApiModelProperty("菜单权限列表")
     private List<MenuPermissionSimpleVo> menuPermissions;
 
+    @ApiModelProperty("子菜单列表")
+    private List<MenuSimpleVo> children;
+
 }